@@ -5,9 +5,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import ru.practicum.client.StatsClient;
+import ru.practicum.client.AsyncStatsClient;
 import ru.practicum.dto.*;
 import ru.practicum.service.EventService;
+import ru.practicum.service.EventViewService;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -23,12 +24,14 @@ import java.util.List;
 @Validated
 public class EventController {
     private final EventService eventService;
-    private final StatsClient statsClient;
+    private final AsyncStatsClient statsClient;
+    private final EventViewService eventViewService;
 
     @Autowired
-    public EventController(EventService eventService, StatsClient statsClient) {
+    public EventController(EventService eventService, AsyncStatsClient statsClient, EventViewService eventViewService) {
         this.eventService = eventService;
         this.statsClient = statsClient;
+        this.eventViewService = eventViewService;
     }
 
     @PostMapping("/users/{userId}/events")
@@ -105,7 +108,7 @@ public class EventController {
         EventFilterParametersDto parameters = new EventFilterParametersDto(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size);
         log.info("Получение событий  с параметрами поиска {}", parameters);
 
-        statsClient.addStat(new EndpointHitDto("main-service", "/events", request.getRemoteAddr(), LocalDateTime.now()));
+        statsClient.addStat(new EndpointHitDto(EventViewService.APP, "/events", request.getRemoteAddr(), LocalDateTime.now()));
         return eventService.getEventFullWithFilter(parameters);
     }
 
@@ -114,7 +117,9 @@ public class EventController {
     @ResponseStatus(HttpStatus.OK)
     public EventFullDto getEventFullById(HttpServletRequest request, @PathVariable int eventId) {
         log.info("Ищется событие с id = {} ", eventId);
-        statsClient.addStat(new EndpointHitDto("main-service", "/events/" + eventId, request.getRemoteAddr(), LocalDateTime.now()));
+        // Not waited for: the views returned include this one through the local projection.
+        statsClient.addStat(new EndpointHitDto(EventViewService.APP, EventViewService.EVENT_URI_PREFIX + eventId, request.getRemoteAddr(), LocalDateTime.now()));
+        eventViewService.recordHit(eventId, request.getRemoteAddr());
         return eventService.getEventFullById(eventId);
     }
 }
@@ -62,4 +62,11 @@ public class Event {
 
     @Size(min = 3, max = 120)
     private String title;
+
+    /**
+     * Unique views as last copied from {@link ru.practicum.service.EventViewProjection}, for sorting in SQL;
+     * written only by {@link ru.practicum.service.EventViewsRefresher}.
+     */
+    @Column(insertable = false, updatable = false)
+    private Long views;
 }
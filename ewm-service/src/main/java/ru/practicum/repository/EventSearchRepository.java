@@ -0,0 +1,111 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Public event search. Text matches events that contain it, in any case, in their title, annotation or
+ * description, on both databases. On PostgreSQL the match is an {@code ilike} served by trigram indexes and
+ * matches are ranked with {@code ts_rank} over the {@code search_vector} tsvector of the three fields; see
+ * {@code schema-postgres.sql}. On the H2 database of the ci/test profiles the match is an upper-cased
+ * {@code like}, and matches are ranked with the default {@code ts_rank} weights of the fields that matched.
+ */
+@Repository
+public class EventSearchRepository {
+    private static final String TS_CONFIG = "'russian'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+
+    public EventSearchRepository(NamedParameterJdbcTemplate jdbcTemplate, DataSource dataSource)
+            throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        this.postgres = "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    public enum Order {
+        RELEVANCE, VIEWS, EVENT_DATE, EVENT_DATE_DESC, ID
+    }
+
+    /**
+     * Ids of one page of events matching every given filter, in the given order; null filters match any event and
+     * a null {@code end} leaves the event date range open. RELEVANCE falls back to ID when there is no text.
+     */
+    public List<Integer> findIds(String text, List<Integer> categories, Boolean paid, LocalDateTime start,
+                                 LocalDateTime end, Order order, long offset, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("select e.id from events e where 1 = 1");
+        boolean hasText = text != null && !text.isBlank();
+        if (hasText) {
+            params.addValue("text", text.trim());
+            params.addValue("pattern", "%" + escapeLike(text.trim()) + "%");
+            sql.append(" and (").append(contains("e.title")).append(" or ").append(contains("e.annotation"))
+                    .append(" or ").append(contains("e.description")).append(")");
+        }
+        if (categories != null) {
+            if (categories.isEmpty()) {
+                return List.of();
+            }
+            params.addValue("categories", categories);
+            sql.append(" and e.category_id in (:categories)");
+        }
+        if (paid != null) {
+            params.addValue("paid", paid);
+            sql.append(" and e.paid = :paid");
+        }
+        if (start != null) {
+            params.addValue("start", Timestamp.valueOf(start));
+            sql.append(" and e.event_date >= :start");
+        }
+        if (end != null) {
+            params.addValue("end", Timestamp.valueOf(end));
+            sql.append(" and e.event_date <= :end");
+        }
+        sql.append(" order by ").append(orderBy(order, hasText)).append(" limit :limit offset :offset");
+        return jdbcTemplate.queryForList(sql.toString(), params, Integer.class);
+    }
+
+    private String orderBy(Order order, boolean hasText) {
+        switch (order) {
+            case RELEVANCE:
+                if (!hasText) {
+                    return "e.id";
+                }
+                return postgres
+                        ? "ts_rank(e.search_vector, plainto_tsquery(" + TS_CONFIG + ", :text)) desc, e.id"
+                        : "(case when " + contains("e.title") + " then 1.0 else 0 end" +
+                        " + case when " + contains("e.annotation") + " then 0.4 else 0 end" +
+                        " + case when " + contains("e.description") + " then 0.2 else 0 end) desc, e.id";
+            case VIEWS:
+                return "e.views desc, e.id";
+            case EVENT_DATE:
+                return "e.event_date, e.id";
+            case EVENT_DATE_DESC:
+                return "e.event_date desc, e.id";
+            default:
+                return "e.id";
+        }
+    }
+
+    // Case-insensitive substring match of :pattern.
+    private String contains(String column) {
+        return postgres ? column + " ilike :pattern" : "upper(" + column + ") like upper(:pattern)";
+    }
+
+    // Both databases take backslash as the default like escape character.
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -5,20 +5,16 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.client.StatsClient;
 import ru.practicum.dto.CompilationDto;
 import ru.practicum.dto.NewCompilationDto;
 import ru.practicum.dto.UpdateCompilationDto;
-import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.exception.ObjectNotFoundException;
 import ru.practicum.mapper.CompilationMapper;
-import ru.practicum.mapper.EventMapper;
 import ru.practicum.model.Compilation;
 import ru.practicum.model.Event;
 import ru.practicum.repository.CompilationRepository;
 import ru.practicum.repository.EventRepository;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -29,14 +25,14 @@ public class CompilationService {
 
     private final EventRepository eventRepository;
 
-    private final StatsClient statsClient;
+    private final EventViewService eventViewService;
 
     @Autowired
     public CompilationService(CompilationRepository compilationRepository, EventRepository eventRepository,
-                              StatsClient statsClient) {
+                              EventViewService eventViewService) {
         this.compilationRepository = compilationRepository;
         this.eventRepository = eventRepository;
-        this.statsClient = statsClient;
+        this.eventViewService = eventViewService;
     }
 
     @Transactional
@@ -57,18 +53,13 @@ public class CompilationService {
         Compilation saveCompilation = compilationRepository.save(compilation);
 
         if (events.isEmpty()) {
-            return CompilationMapper.toCompilationDto(saveCompilation, new ArrayList<>());
+            return CompilationMapper.toCompilationDto(saveCompilation, new HashMap<>());
         }
 
         // Извлекаем статистику только в случае, если список событий не пуст
-        List<ViewStatsDto> stat = statsClient.getStat(
-                LocalDateTime.now().minusYears(20),
-                LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(saveCompilation.getEventSet()),
-                Boolean.TRUE
-        );
-
-        return CompilationMapper.toCompilationDto(compilation, stat);
+        Map<Integer, Long> views = eventViewService.getViews(saveCompilation.getEventSet(), true);
+
+        return CompilationMapper.toCompilationDto(compilation, views);
     }
 
     @Transactional
@@ -88,10 +79,9 @@ public class CompilationService {
 
         Compilation saveCompilation = compilationRepository.save(compilation);
 
-        List<ViewStatsDto> stat = statsClient.getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(saveCompilation.getEventSet()), Boolean.TRUE);
+        Map<Integer, Long> views = eventViewService.getViews(saveCompilation.getEventSet(), true);
 
-        return CompilationMapper.toCompilationDto(saveCompilation, stat);
+        return CompilationMapper.toCompilationDto(saveCompilation, views);
     }
 
     @Transactional
@@ -115,14 +105,9 @@ public class CompilationService {
                 .flatMap(c -> c.getEventSet().stream())
                 .collect(Collectors.toSet());
 
-        List<ViewStatsDto> stat = statsClient.getStat(
-                LocalDateTime.now().minusYears(20),
-                LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(eventSet),
-                Boolean.FALSE
-        );
+        Map<Integer, Long> views = eventViewService.getViews(eventSet, false);
 
-        return CompilationMapper.toCompilationDtoList(compilationList, stat);
+        return CompilationMapper.toCompilationDtoList(compilationList, views);
     }
 
     @Transactional(readOnly = true)
@@ -130,14 +115,9 @@ public class CompilationService {
         Compilation compilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new ObjectNotFoundException("Подборка с compId = " + compId + " не найден"));
 
-        List<ViewStatsDto> stat = statsClient.getStat(
-                LocalDateTime.now().minusYears(20),
-                LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(compilation.getEventSet()),
-                Boolean.TRUE
-        );
+        Map<Integer, Long> views = eventViewService.getViews(compilation.getEventSet(), true);
 
-        return CompilationMapper.toCompilationDto(compilation, stat);
+        return CompilationMapper.toCompilationDto(compilation, views);
     }
 
 
@@ -6,7 +6,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.client.StatsClient;
 import ru.practicum.dto.*;
 import ru.practicum.exception.ObjectNotFoundException;
 import ru.practicum.exception.RequestConflictException;
@@ -18,6 +17,7 @@ import ru.practicum.repository.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -29,7 +29,8 @@ public class EventService {
     private final CategoryRepository categoryRepository;
     private final LocationRepository locationRepository;
     private final RequestRepository requestRepository;
-    private final StatsClient statsClient;
+    private final EventViewService eventViewService;
+    private final EventSearchRepository eventSearchRepository;
     private final DateTimeFormatter formatter;
 
     private static final int MIN_HOURS_BEFORE_EVENT = 2;
@@ -37,13 +38,15 @@ public class EventService {
     @Autowired
     public EventService(EventRepository eventRepository, UserRepository userRepository,
                         CategoryRepository categoryRepository, LocationRepository locationRepository,
-                        RequestRepository requestRepository, StatsClient statsClient) {
+                        RequestRepository requestRepository, EventViewService eventViewService,
+                        EventSearchRepository eventSearchRepository) {
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.locationRepository = locationRepository;
         this.requestRepository = requestRepository;
-        this.statsClient = statsClient;
+        this.eventViewService = eventViewService;
+        this.eventSearchRepository = eventSearchRepository;
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
 
@@ -188,12 +191,10 @@ public class EventService {
 
 
     private EventFullDto prepareEventFullDto(int userId, int eventId, Event updatedEvent) {
+        CompletableFuture<Long> views = eventViewService.getViewsAsync(eventId, true);
         RequestCountDto requestCountDto = getRequestCountDto(eventId, RequestStatus.CONFIRMED);
-        List<ViewStatsDto> stat = statsClient.getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                Collections.singleton("/events/" + eventId), Boolean.TRUE);
-
-        long statsHits = (stat.isEmpty()) ? 0 : stat.get(0).getHits();
-        return EventMapper.toEventFullDto(updatedEvent, getUserById(userId), requestCountDto.getRequestCount(), statsHits);
+        User user = getUserById(userId);
+        return EventMapper.toEventFullDto(updatedEvent, user, requestCountDto.getRequestCount(), views.join());
     }
 
     @Transactional(readOnly = true)
@@ -205,10 +206,9 @@ public class EventService {
         List<EventShortDto> eventShortDtoList = new ArrayList<>();
         List<Event> eventList = eventRepository.findByInitiatorId(userId, pageable);
 
-        List<ViewStatsDto> stat = getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(eventList), Boolean.TRUE);
+        Map<Integer, Long> views = eventViewService.getViews(eventList, true);
 
-        eventShortDtoList = EventMapper.toEventShortDtoList(eventList, stat);
+        eventShortDtoList = EventMapper.toEventShortDtoList(eventList, views);
 
         return eventShortDtoList;
     }
@@ -223,12 +223,10 @@ public class EventService {
                 .orElseThrow(() -> new ObjectNotFoundException("Событие с eventId = " + eventId +
                         " не найдено"));
 
+        CompletableFuture<Long> views = eventViewService.getViewsAsync(eventId, true);
         RequestCountDto requestCountDto = getRequestCountDto(eventId, RequestStatus.CONFIRMED);
 
-        List<ViewStatsDto> stat = getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                Collections.singleton("/events/" + eventId), Boolean.TRUE);
-
-        return stat.isEmpty() ? EventMapper.toEventFullDto(event, user, requestCountDto.getRequestCount(), 0) : EventMapper.toEventFullDto(event, user, requestCountDto.getRequestCount(), stat.get(0).getHits());
+        return EventMapper.toEventFullDto(event, user, requestCountDto.getRequestCount(), views.join());
 
     }
 
@@ -253,6 +251,8 @@ public class EventService {
         }
         List<Event> eventList = eventRepository.findByUserStateCategoryStartEndOrderByIdDesc(params.getUsers(), stateList, params.getCategories(), start, end, pageable);
 
+        CompletableFuture<Map<Integer, Long>> views = eventViewService.getViewsAsync(eventList, true);
+
         List<Integer> eventIdList = new ArrayList<>();
         for (Event event : eventList) {
             eventIdList.add(event.getId());
@@ -261,10 +261,7 @@ public class EventService {
         List<RequestCountDto> requestCountDtoList =
                 requestRepository.findRequestCountDtoListByEventId(eventIdList, RequestStatus.CONFIRMED);
 
-        List<ViewStatsDto> stat = getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(eventList), Boolean.TRUE);
-
-        eventFullDtoList = EventMapper.toEventFullDtoList(eventList, requestCountDtoList, stat);
+        eventFullDtoList = EventMapper.toEventFullDtoList(eventList, requestCountDtoList, views.join());
         return eventFullDtoList;
     }
 
@@ -337,18 +334,11 @@ public class EventService {
     }
 
     private EventFullDto createEventFullDto(int eventId, Event updatedEvent) {
-        RequestCountDto requestCountDto = getRequestCountDto(eventId, RequestStatus.CONFIRMED);
+        CompletableFuture<Long> views = eventViewService.getViewsAsync(eventId, true);
 
-        List<ViewStatsDto> stat = getStat(
-                LocalDateTime.now().minusYears(20),
-                LocalDateTime.now().plusYears(100),
-                Collections.singleton("/events/" + eventId),
-                Boolean.TRUE
-        );
-
-        long hits = stat.isEmpty() ? 0 : stat.get(0).getHits();
+        RequestCountDto requestCountDto = getRequestCountDto(eventId, RequestStatus.CONFIRMED);
 
-        return EventMapper.toEventFullDto(updatedEvent, updatedEvent.getInitiator(), requestCountDto.getRequestCount(), hits);
+        return EventMapper.toEventFullDto(updatedEvent, updatedEvent.getInitiator(), requestCountDto.getRequestCount(), views.join());
     }
 
 
@@ -356,16 +346,15 @@ public class EventService {
     public List<EventFullDto> getEventFullWithFilter(EventFilterParametersDto params) {
         validateEventDate(params);
         List<Event> eventList = fetchEventsBasedOnParams(params);
+        // Requested before the events filled up are dropped, so it runs alongside the request count query.
+        CompletableFuture<Map<Integer, Long>> views = eventViewService.getViewsAsync(eventList, true);
         List<RequestCountDto> requestCountDtoList = fetchAllRequestCountDtoByEventIdInAndStatus(eventList);
 
         if (params.getOnlyAvailable()) {
             removeFullEvents(eventList, requestCountDtoList);
         }
 
-        List<ViewStatsDto> stats = getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                EventMapper.toUriCollection(eventList), Boolean.TRUE);
-
-        return sortEvents(params, EventMapper.toEventFullDtoList(eventList, requestCountDtoList, stats));
+        return EventMapper.toEventFullDtoList(eventList, requestCountDtoList, views.join());
     }
 
     private void validateEventDate(EventFilterParametersDto params) {
@@ -381,12 +370,38 @@ public class EventService {
     private List<Event> fetchEventsBasedOnParams(EventFilterParametersDto params) {
         int page = params.getFrom() / params.getSize();
         Pageable pageable = PageRequest.of(page, params.getSize());
-        if (params.getRangeStart() == null || params.getRangeEnd() == null) {
-            return eventRepository.findByTextCategoriesPaidEventDateAfter(params.getText(), params.getCategories(), params.getPaid(),
-                    LocalDateTime.now(), pageable);
-        } else {
-            return eventRepository.findByTextCategoriesPaidStartEndSortByEventDate(params.getText(), params.getCategories(), params.getPaid(), LocalDateTime.parse(params.getRangeStart(), formatter),
-                    LocalDateTime.parse(params.getRangeEnd(), formatter), pageable);
+        boolean range = params.getRangeStart() != null && params.getRangeEnd() != null;
+        LocalDateTime start = range ? LocalDateTime.parse(params.getRangeStart(), formatter) : LocalDateTime.now();
+        LocalDateTime end = range ? LocalDateTime.parse(params.getRangeEnd(), formatter) : null;
+        List<Integer> ids = eventSearchRepository.findIds(params.getText(), params.getCategories(), params.getPaid(),
+                start, end, searchOrder(params, range), pageable.getOffset(), pageable.getPageSize());
+
+        Map<Integer, Event> events = eventRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Event::getId, event -> event));
+        return ids.stream()
+                .map(events::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The page is cut in this order by the database, so every page holds the right events and the page is not
+     * sorted again: EVENT_DATE is the earliest first, VIEWS the most viewed first, and RELEVANCE ranks text
+     * matches. Without a sort, events of a date range come latest first and other events by id.
+     */
+    private EventSearchRepository.Order searchOrder(EventFilterParametersDto params, boolean range) {
+        if (params.getSort() == null) {
+            return range ? EventSearchRepository.Order.EVENT_DATE_DESC : EventSearchRepository.Order.ID;
+        }
+        switch (params.getSort()) {
+            case "VIEWS":
+                return EventSearchRepository.Order.VIEWS;
+            case "EVENT_DATE":
+                return EventSearchRepository.Order.EVENT_DATE;
+            case "RELEVANCE":
+                return EventSearchRepository.Order.RELEVANCE;
+            default:
+                return range ? EventSearchRepository.Order.EVENT_DATE_DESC : EventSearchRepository.Order.ID;
         }
     }
 
@@ -412,24 +427,6 @@ public class EventService {
         }
     }
 
-    private List<EventFullDto> sortEvents(EventFilterParametersDto params, List<EventFullDto> eventFullDtoList) {
-        if (params.getSort() == null) {
-            return eventFullDtoList;
-        }
-        switch (params.getSort()) {
-            case "EVENT_DATE":
-                return eventFullDtoList.stream()
-                        .sorted(Comparator.comparing(EventFullDto::getEventDate))
-                        .collect(Collectors.toList());
-            case "VIEWS":
-                return eventFullDtoList.stream()
-                        .sorted(Comparator.comparingLong(EventFullDto::getViews))
-                        .collect(Collectors.toList());
-            default:
-                return eventFullDtoList;
-        }
-    }
-
 
     @Transactional(readOnly = true)
     public RequestCountDto getRequestCountDto(int eventId, RequestStatus status) {
@@ -441,26 +438,16 @@ public class EventService {
         }
     }
 
-    @Transactional(readOnly = true)
-    public List<ViewStatsDto> getStat(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique) {
-        return statsClient.getStat(start, end, uris, unique);
-    }
-
     @Transactional(readOnly = true)
     public EventFullDto getEventFullById(int eventId) {
 
         Event event = eventRepository.findByIdAndState(eventId, State.PUBLISHED)
                 .orElseThrow(() -> new ObjectNotFoundException("Событие с eventId = " + eventId + "и статусом" + State.PUBLISHED + " не найдено"));
 
+        CompletableFuture<Long> views = eventViewService.getViewsAsync(eventId, true);
         RequestCountDto requestCountDto = getRequestCountDto(eventId, RequestStatus.CONFIRMED);
 
-        List<ViewStatsDto> stat = getStat(LocalDateTime.now().minusYears(20), LocalDateTime.now().plusYears(100),
-                Collections.singleton("/events/" + eventId), Boolean.TRUE);
-
-        return stat.isEmpty() ? EventMapper.toEventFullDto(event, event.getInitiator(),
-                requestCountDto.getRequestCount(), 0)
-                : EventMapper.toEventFullDto(event, event.getInitiator(),
-                requestCountDto.getRequestCount(), stat.get(0).getHits());
+        return EventMapper.toEventFullDto(event, event.getInitiator(), requestCountDto.getRequestCount(), views.join());
 
     }
 }
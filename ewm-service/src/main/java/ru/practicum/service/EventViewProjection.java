@@ -0,0 +1,224 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.UriCountDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copy of the all-time views of every event, kept up to date from the stats-server counter feed
+ * ({@code GET /stats/delta}) every {@code poll-ms}, so reading views needs no stats-server call.
+ * It is ready once it has caught up with the feed, and stops being ready when the feed has failed for longer
+ * than {@code max-lag-ms}; views are then read from stats-server as before. When the feed goes back, as after
+ * stats-server recounted its counters, the projection is not ready until the whole feed has been replayed into a
+ * new copy, which then replaces the old one at once.
+ * Hits of this instance are added to the local counts at once, so an event page shows its own view without
+ * waiting for the hit to be posted or for the feed. As the post is not waited for, a count fetched later need not
+ * include them yet: they are dropped once the feed count has grown by at least as many hits, or after
+ * {@code max-lag-ms}.
+ */
+@Slf4j
+@Service
+public class EventViewProjection {
+    private static final int HITS = 0;
+    private static final int UNIQUE_HITS = 1;
+    private static final int RECORDED_NANOS = 2;
+    private static final int BASE_HITS = 3;
+
+    private final AsyncStatsClient statsClient;
+    private final boolean enabled;
+    private final int pageSize;
+    private final long maxLagNanos;
+    // Event id to {hits, unique hits}; arrays are replaced, never changed.
+    private volatile Map<Integer, long[]> views = new ConcurrentHashMap<>();
+    // Events whose counts changed since the last drainChanged.
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    // Own hits not yet seen in the feed: event id to {hits, unique hits, nanoTime of the first, feed hits then}.
+    private final Map<Integer, long[]> pending = new ConcurrentHashMap<>();
+    // Recent (event id, ip) pairs of own hits, so a repeated visit does not count as a unique one.
+    private final Map<String, Boolean> visitors;
+    private long watermark;
+    private volatile long syncedAt;
+    private volatile boolean caughtUp;
+
+    @Autowired
+    public EventViewProjection(AsyncStatsClient statsClient,
+                               @Value("${ewm.views.projection.enabled:true}") boolean enabled,
+                               @Value("${ewm.views.projection.page-size:1000}") int pageSize,
+                               @Value("${ewm.views.projection.max-lag-ms:10000}") long maxLagMs,
+                               @Value("${ewm.views.projection.max-visitors:10000}") int maxVisitors) {
+        this.statsClient = statsClient;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMs);
+        this.visitors = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxVisitors;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && caughtUp && System.nanoTime() - syncedAt < maxLagNanos;
+    }
+
+    public long getViews(int eventId, boolean unique) {
+        int index = unique ? UNIQUE_HITS : HITS;
+        long[] counts = views.get(eventId);
+        long[] own = pending.get(eventId);
+        return (counts == null ? 0 : counts[index]) + (own == null ? 0 : own[index]);
+    }
+
+    /**
+     * Counts a hit of this instance on the event until the feed brings it.
+     */
+    public void recordHit(int eventId, String ip) {
+        if (!enabled) {
+            return;
+        }
+        long unique = visitors.put(eventId + " " + ip, Boolean.TRUE) == null ? 1 : 0;
+        long[] counts = views.get(eventId);
+        pending.merge(eventId, new long[]{1, unique, System.nanoTime(), counts == null ? 0 : counts[HITS]},
+                (a, b) -> new long[]{a[HITS] + b[HITS], a[UNIQUE_HITS] + b[UNIQUE_HITS], a[RECORDED_NANOS], a[BASE_HITS]});
+        changed.add(eventId);
+    }
+
+    /**
+     * Ids of the events whose views changed since the previous call.
+     */
+    public List<Integer> drainChanged() {
+        List<Integer> ids = new ArrayList<>();
+        for (Iterator<Integer> iterator = changed.iterator(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        return ids;
+    }
+
+    /**
+     * Marks events as changed again, for a consumer of {@link #drainChanged} that failed to apply them.
+     */
+    public void markChanged(Collection<Integer> ids) {
+        changed.addAll(ids);
+    }
+
+    @Scheduled(fixedDelayString = "${ewm.views.projection.poll-ms:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            catchUp();
+        } catch (RuntimeException e) {
+            log.debug("Views projection not updated: {}", e.getMessage());
+        }
+        long now = System.nanoTime();
+        pending.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue()[RECORDED_NANOS] >= maxLagNanos;
+            if (expired) {
+                changed.add(entry.getKey());
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * Applies the feed up to its end; throws when stats-server is unavailable.
+     */
+    synchronized void catchUp() {
+        long since = watermark;
+        // The copy the feed is replayed into after it went back; the watermark stays until it replaces the views.
+        Map<Integer, long[]> rebuilt = null;
+        boolean more;
+        do {
+            StatsDeltaDto delta = statsClient.getDelta(since, EventViewService.APP,
+                    EventViewService.EVENT_URI_PREFIX, pageSize).join();
+            if (delta.getWatermark() < since) {
+                log.info("Stats-server counters went back from version {} to {}, rebuilding views projection",
+                        since, delta.getWatermark());
+                caughtUp = false;
+                rebuilt = new ConcurrentHashMap<>();
+                since = 0;
+                more = true;
+                continue;
+            }
+            for (UriCountDto count : delta.getCounts()) {
+                if (rebuilt == null) {
+                    apply(count);
+                } else {
+                    Integer eventId = eventId(count);
+                    if (eventId != null) {
+                        rebuilt.put(eventId, new long[]{count.getHits(), count.getUniqueHits()});
+                    }
+                }
+            }
+            since = delta.getWatermark();
+            more = Boolean.TRUE.equals(delta.getMore());
+        } while (more);
+        if (rebuilt != null) {
+            replaceViews(rebuilt);
+        }
+        watermark = since;
+        syncedAt = System.nanoTime();
+        caughtUp = true;
+    }
+
+    private void apply(UriCountDto count) {
+        Integer eventId = eventId(count);
+        if (eventId == null) {
+            return;
+        }
+        long[] previous = views.put(eventId, new long[]{count.getHits(), count.getUniqueHits()});
+        if (previous == null || previous[HITS] != count.getHits() || previous[UNIQUE_HITS] != count.getUniqueHits()) {
+            changed.add(eventId);
+            // Hits of other instances count too, so the own ones may go early, but the views shown never drop.
+            pending.computeIfPresent(eventId, (k, own) -> count.getHits() - own[BASE_HITS] >= own[HITS] ? null : own);
+        }
+    }
+
+    private void replaceViews(Map<Integer, long[]> rebuilt) {
+        Map<Integer, long[]> previous = views;
+        views = rebuilt;
+        for (Map.Entry<Integer, long[]> entry : previous.entrySet()) {
+            if (!Arrays.equals(entry.getValue(), rebuilt.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (Integer eventId : rebuilt.keySet()) {
+            if (!previous.containsKey(eventId)) {
+                changed.add(eventId);
+            }
+        }
+    }
+
+    private static Integer eventId(UriCountDto count) {
+        String id = count.getUri().substring(EventViewService.EVENT_URI_PREFIX.length());
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            log.debug("Skipping counts of {}, not an event uri", count.getUri());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.model.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Views of events, fetched from stats-server by event id: ids go out and an array of counts comes back,
+ * so no uri strings are built or matched on this side. Recently read counts come from the client's cache.
+ * The async variants let callers run their own queries while the counts are on the way.
+ * While {@link EventViewProjection} is ready, views are read from it and no call is made at all.
+ */
+@Slf4j
+@Service
+public class EventViewService {
+
+    public static final String APP = "main-service";
+    public static final String EVENT_URI_PREFIX = "/events/";
+
+    private final AsyncStatsClient statsClient;
+    private final EventViewProjection projection;
+
+    @Autowired
+    public EventViewService(AsyncStatsClient statsClient, EventViewProjection projection) {
+        this.statsClient = statsClient;
+        this.projection = projection;
+    }
+
+    public Map<Integer, Long> getViews(Collection<Event> events, boolean unique) {
+        return getViewsAsync(events, unique).join();
+    }
+
+    public long getViews(int eventId, boolean unique) {
+        return getViewsAsync(eventId, unique).join();
+    }
+
+    /**
+     * Counts a hit this instance has just sent in the views read next, without waiting for the feed.
+     */
+    public void recordHit(int eventId, String ip) {
+        projection.recordHit(eventId, ip);
+    }
+
+    public CompletableFuture<Map<Integer, Long>> getViewsAsync(Collection<Event> events, boolean unique) {
+        List<Long> ids = new ArrayList<>(events.size());
+        for (Event event : events) {
+            ids.add(event.getId().longValue());
+        }
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+        if (projection.isReady()) {
+            Map<Integer, Long> views = new HashMap<>();
+            for (Long id : ids) {
+                views.put(id.intValue(), projection.getViews(id.intValue(), unique));
+            }
+            return CompletableFuture.completedFuture(views);
+        }
+
+        return statsClient.getTotalHitCounts(APP, EVENT_URI_PREFIX, ids, unique).thenApply(hits -> {
+            Map<Integer, Long> views = new HashMap<>();
+            for (int i = 0; i < hits.length; i++) {
+                views.put(ids.get(i).intValue(), hits[i]);
+            }
+            return views;
+        });
+    }
+
+    public CompletableFuture<Long> getViewsAsync(int eventId, boolean unique) {
+        if (projection.isReady()) {
+            return CompletableFuture.completedFuture(projection.getViews(eventId, unique));
+        }
+        return statsClient.getTotalHitCounts(APP, EVENT_URI_PREFIX, List.of((long) eventId), unique)
+                .thenApply(hits -> hits.length == 0 ? 0 : hits[0]);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.repository.EventRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the unique views of events that changed in {@link EventViewProjection} into {@code events.views}
+ * every {@code refresh-ms}, so {@code sort=VIEWS} is ordered and paged by the database. The column lags the
+ * projection by up to one refresh. While the projection is disabled or not ready, the column of every event is
+ * instead seeded from {@code POST /stats/counts} every {@code seed-ms}, {@code seed-page-size} events per call;
+ * a seed that stats-server fails is logged and retried at the next refresh. No transaction is open while
+ * stats-server is called: each seeded page is written in a short transaction of its own.
+ */
+@Slf4j
+@Service
+public class EventViewsRefresher {
+    private final EventViewProjection projection;
+    private final EventRepository eventRepository;
+    private final AsyncStatsClient statsClient;
+    private final TransactionTemplate transactionTemplate;
+    private final long seedNanos;
+    private final int seedPageSize;
+    private boolean seeded;
+    private long seededAt;
+
+    @Autowired
+    public EventViewsRefresher(EventViewProjection projection,
+                               EventRepository eventRepository,
+                               AsyncStatsClient statsClient,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${ewm.views.column.seed-ms:60000}") long seedMs,
+                               @Value("${ewm.views.column.seed-page-size:500}") int seedPageSize) {
+        this.projection = projection;
+        this.eventRepository = eventRepository;
+        this.statsClient = statsClient;
+        this.transactionTemplate = transactionTemplate;
+        this.seedNanos = TimeUnit.MILLISECONDS.toNanos(seedMs);
+        this.seedPageSize = seedPageSize;
+        // An enabled projection normally gets ready within seconds; it gets one seed interval before a seed.
+        this.seeded = projection.isEnabled();
+        this.seededAt = System.nanoTime();
+    }
+
+    @Scheduled(fixedDelayString = "${ewm.views.column.refresh-ms:5000}")
+    public void refresh() {
+        if (!projection.isReady()) {
+            if (!seeded || System.nanoTime() - seededAt >= seedNanos) {
+                seed();
+            }
+            return;
+        }
+        List<Integer> ids = projection.drainChanged();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Integer id : ids) {
+                    eventRepository.updateViews(id, projection.getViews(id, true));
+                }
+            });
+        } catch (RuntimeException e) {
+            projection.markChanged(ids);
+            throw e;
+        }
+        if (!ids.isEmpty()) {
+            log.debug("Views of {} events refreshed", ids.size());
+        }
+    }
+
+    private void seed() {
+        int count = 0;
+        List<Integer> ids;
+        int after = 0;
+        do {
+            ids = eventRepository.findIdsAfter(after, PageRequest.of(0, seedPageSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Long> eventIds = new ArrayList<>(ids.size());
+            ids.forEach(id -> eventIds.add(id.longValue()));
+            long[] views;
+            try {
+                views = statsClient.getHitCounts(AsyncStatsClient.ALL_TIME_START, AsyncStatsClient.ALL_TIME_END,
+                        EventViewService.APP, EventViewService.EVENT_URI_PREFIX, eventIds, true).join();
+            } catch (CompletionException e) {
+                log.warn("Views of events after id {} not seeded, stats-server unavailable: {}", after,
+                        e.getCause().getMessage());
+                seeded = false;
+                return;
+            }
+            List<Integer> page = ids;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < page.size(); i++) {
+                    eventRepository.updateViews(page.get(i), views[i]);
+                }
+            });
+            count += ids.size();
+            after = ids.get(ids.size() - 1);
+        } while (ids.size() == seedPageSize);
+        seeded = true;
+        seededAt = System.nanoTime();
+        log.info("Views of {} events seeded from stats-server", count);
+    }
+}
@@ -0,0 +1,10 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE events ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+  setweight(to_tsvector('russian', title), 'A') ||
+  setweight(to_tsvector('russian', annotation), 'B') ||
+  setweight(to_tsvector('russian', description), 'C')) STORED;
+
+CREATE INDEX IF NOT EXISTS events_title_trgm_idx ON events USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS events_annotation_trgm_idx ON events USING gin (annotation gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS events_description_trgm_idx ON events USING gin (description gin_trgm_ops);
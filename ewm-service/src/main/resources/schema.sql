@@ -37,9 +37,12 @@ create TABLE IF NOT exists events (
   request_moderation bool NOT NULL,
   state VARCHAR(10) NOT NULL,
   title VARCHAR(120) NOT null,
+  views BIGINT DEFAULT 0 NOT NULL,
   CONSTRAINT pk_events PRIMARY KEY (id)
 );
 
+CREATE INDEX IF NOT EXISTS events_views_idx ON events (views DESC, id);
+
 CREATE TABLE IF NOT EXISTS requests (
   id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   requester_id int NOT null REFERENCES users(id),
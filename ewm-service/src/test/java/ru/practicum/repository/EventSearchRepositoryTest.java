@@ -0,0 +1,89 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSearchRepositoryTest {
+    private static final LocalDateTime EVENT_DATE = LocalDateTime.of(2030, 1, 1, 18, 0);
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private EventSearchRepository repository;
+
+    @BeforeEach
+    void createTables() throws Exception {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:event-search;DB_CLOSE_DELAY=-1", "test", "test");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'user', 'user@mail.ru')");
+        jdbcTemplate.update("insert into categories (id, name) values (1, 'concerts')");
+        jdbcTemplate.update("insert into location (id, lat, lon) values (1, 55.75, 37.62)");
+        repository = new EventSearchRepository(new NamedParameterJdbcTemplate(dataSource), dataSource);
+    }
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void textOnlyInTheTitleMatches() {
+        event(1, "Jazz night", "An evening of music", "Bring friends");
+        event(2, "Rock night", "An evening of music", "Bring friends");
+
+        assertThat(find("JAZZ", EventSearchRepository.Order.ID)).containsExactly(1);
+    }
+
+    @Test
+    void textOnlyInTheAnnotationOrDescriptionMatches() {
+        event(1, "Concert", "Live jazz on the roof", "Bring friends");
+        event(2, "Concert", "An evening of music", "Mostly jazz standards");
+        event(3, "Concert", "An evening of music", "Bring friends");
+
+        assertThat(find("jazz", EventSearchRepository.Order.ID)).containsExactly(1, 2);
+    }
+
+    @Test
+    void percentAndUnderscoreAreMatchedLiterally() {
+        event(1, "100% jazz", "Annotation", "Description");
+        event(2, "100 jazz", "Annotation", "Description");
+        event(3, "jazz_club", "Annotation", "Description");
+        event(4, "jazz club", "Annotation", "Description");
+
+        assertThat(find("100%", EventSearchRepository.Order.ID)).containsExactly(1);
+        assertThat(find("jazz_club", EventSearchRepository.Order.ID)).containsExactly(3);
+        assertThat(find("%", EventSearchRepository.Order.ID)).containsExactly(1);
+    }
+
+    @Test
+    void relevanceRanksTitleMatchesFirst() {
+        event(1, "Concert", "An evening of music", "Mostly jazz standards");
+        event(2, "Concert", "Live jazz on the roof", "Bring friends");
+        event(3, "Jazz night", "An evening of music", "Bring friends");
+
+        assertThat(find("jazz", EventSearchRepository.Order.RELEVANCE)).containsExactly(3, 2, 1);
+        assertThat(find(null, EventSearchRepository.Order.RELEVANCE)).containsExactly(1, 2, 3);
+    }
+
+    private List<Integer> find(String text, EventSearchRepository.Order order) {
+        return repository.findIds(text, null, null, null, null, order, 0, 10);
+    }
+
+    private void event(int id, String title, String annotation, String description) {
+        jdbcTemplate.update("insert into events (id, initiator_id, annotation, created_on, category_id, description, " +
+                        "event_date, location_id, paid, participant_limit, request_moderation, state, title) " +
+                        "values (?, 1, ?, current_timestamp, 1, ?, ?, 1, false, 0, false, 'PUBLISHED', ?)",
+                id, annotation, description, EVENT_DATE, title);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.client.StatsServerException;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.UriCountDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventViewProjectionTest {
+    private AsyncStatsClient statsClient;
+
+    @BeforeEach
+    void setUp() {
+        statsClient = mock(AsyncStatsClient.class);
+    }
+
+    @Test
+    void readyOnceEveryPageOfTheFeedIsApplied() {
+        EventViewProjection projection = projection(60_000);
+        feed(0, delta(5, true, count(1, 3, 2)));
+        feed(5, delta(8, false, count(2, 1, 1), count(1, 4, 2)));
+
+        assertThat(projection.isReady()).isFalse();
+        projection.catchUp();
+
+        assertThat(projection.isReady()).isTrue();
+        assertThat(projection.getViews(1, false)).isEqualTo(4);
+        assertThat(projection.getViews(1, true)).isEqualTo(2);
+        assertThat(projection.getViews(2, true)).isEqualTo(1);
+        assertThat(projection.drainChanged()).containsExactlyInAnyOrder(1, 2);
+        assertThat(projection.drainChanged()).isEmpty();
+    }
+
+    @Test
+    void feedGoingBackIsReplayedIntoANewCopyBeforeItIsUsed() {
+        EventViewProjection projection = projection(60_000);
+        feed(0, delta(10, false, count(1, 5, 3), count(2, 7, 7)));
+        projection.catchUp();
+        projection.drainChanged();
+
+        // The counters were recounted: the feed starts over and fails half way.
+        feed(10, delta(4, false));
+        feed(0, delta(2, true, count(1, 5, 3)));
+        when(statsClient.getDelta(eq(2L), anyString(), anyString(), anyInt()))
+                .thenReturn(CompletableFuture.failedFuture(new StatsServerException("unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(delta(4, false, count(3, 1, 1))));
+
+        assertThatThrownBy(projection::catchUp).hasCauseInstanceOf(StatsServerException.class);
+        assertThat(projection.isReady()).isFalse();
+        assertThat(projection.getViews(2, false)).isEqualTo(7);
+        assertThat(projection.drainChanged()).isEmpty();
+
+        projection.catchUp();
+
+        assertThat(projection.isReady()).isTrue();
+        assertThat(projection.getViews(1, false)).isEqualTo(5);
+        assertThat(projection.getViews(2, false)).isZero();
+        assertThat(projection.getViews(3, false)).isEqualTo(1);
+        assertThat(projection.drainChanged()).containsExactlyInAnyOrder(2, 3);
+
+        feed(4, delta(6, false, count(3, 2, 1)));
+        projection.catchUp();
+        assertThat(projection.getViews(3, false)).isEqualTo(2);
+    }
+
+    @Test
+    void ownHitsCountAtOnceAndGoWhenTheFeedHasThem() {
+        EventViewProjection projection = projection(60_000);
+        feed(0, delta(1, false, count(1, 10, 4)));
+        projection.catchUp();
+
+        projection.recordHit(1, "10.0.0.1");
+        projection.recordHit(1, "10.0.0.1");
+        projection.recordHit(1, "10.0.0.2");
+
+        assertThat(projection.getViews(1, false)).isEqualTo(13);
+        assertThat(projection.getViews(1, true)).isEqualTo(6);
+
+        // Only two of the three have reached stats-server yet.
+        feed(1, delta(2, false, count(1, 12, 6)));
+        projection.catchUp();
+        assertThat(projection.getViews(1, false)).isEqualTo(15);
+
+        feed(2, delta(3, false, count(1, 13, 6)));
+        projection.catchUp();
+        assertThat(projection.getViews(1, false)).isEqualTo(13);
+        assertThat(projection.getViews(1, true)).isEqualTo(6);
+    }
+
+    @Test
+    void ownHitsTheFeedNeverBringsExpire() throws InterruptedException {
+        EventViewProjection projection = projection(50);
+        when(statsClient.getDelta(anyLong(), anyString(), anyString(), anyInt()))
+                .thenReturn(CompletableFuture.failedFuture(new StatsServerException("unavailable")));
+
+        projection.recordHit(1, "10.0.0.1");
+        assertThat(projection.getViews(1, false)).isEqualTo(1);
+        projection.drainChanged();
+
+        Thread.sleep(60);
+        projection.poll();
+
+        assertThat(projection.getViews(1, false)).isZero();
+        assertThat(projection.drainChanged()).containsExactly(1);
+    }
+
+    @Test
+    void disabledProjectionIsNeverReadyAndIgnoresHits() {
+        EventViewProjection projection = new EventViewProjection(statsClient, false, 100, 60_000, 100);
+
+        projection.recordHit(1, "10.0.0.1");
+        projection.poll();
+
+        assertThat(projection.isReady()).isFalse();
+        assertThat(projection.getViews(1, false)).isZero();
+    }
+
+    private EventViewProjection projection(long maxLagMs) {
+        return new EventViewProjection(statsClient, true, 100, maxLagMs, 100);
+    }
+
+    private void feed(long since, StatsDeltaDto delta) {
+        when(statsClient.getDelta(eq(since), anyString(), anyString(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(delta));
+    }
+
+    private static StatsDeltaDto delta(long watermark, boolean more, UriCountDto... counts) {
+        return new StatsDeltaDto(watermark, more, List.of(counts));
+    }
+
+    private static UriCountDto count(int eventId, long hits, long uniqueHits) {
+        return new UriCountDto(EventViewService.APP, EventViewService.EVENT_URI_PREFIX + eventId, hits, uniqueHits);
+    }
+}
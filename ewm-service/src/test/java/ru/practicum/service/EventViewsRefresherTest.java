@@ -0,0 +1,109 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.client.StatsServerException;
+import ru.practicum.repository.EventRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventViewsRefresherTest {
+    private static final int PAGE_SIZE = 2;
+
+    private EventViewProjection projection;
+    private EventRepository eventRepository;
+    private AsyncStatsClient statsClient;
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        projection = mock(EventViewProjection.class);
+        eventRepository = mock(EventRepository.class);
+        statsClient = mock(AsyncStatsClient.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(eventRepository.findIdsAfter(0, PageRequest.of(0, PAGE_SIZE))).thenReturn(List.of(1, 2));
+        when(eventRepository.findIdsAfter(2, PageRequest.of(0, PAGE_SIZE))).thenReturn(List.of(3));
+    }
+
+    @Test
+    void seedWritesEveryPageInATransactionOpenedAfterItsCounts() {
+        when(statsClient.getHitCounts(AsyncStatsClient.ALL_TIME_START, AsyncStatsClient.ALL_TIME_END,
+                EventViewService.APP, EventViewService.EVENT_URI_PREFIX, List.of(1L, 2L), true))
+                .thenReturn(CompletableFuture.completedFuture(new long[]{5, 0}));
+        when(statsClient.getHitCounts(AsyncStatsClient.ALL_TIME_START, AsyncStatsClient.ALL_TIME_END,
+                EventViewService.APP, EventViewService.EVENT_URI_PREFIX, List.of(3L), true))
+                .thenReturn(CompletableFuture.completedFuture(new long[]{7}));
+
+        refresher().refresh();
+
+        InOrder order = inOrder(statsClient, transactionManager, eventRepository);
+        order.verify(statsClient).getHitCounts(any(), any(), any(), any(), any(), any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(eventRepository).updateViews(1, 5);
+        order.verify(eventRepository).updateViews(2, 0);
+        order.verify(transactionManager).commit(any());
+        order.verify(statsClient).getHitCounts(any(), any(), any(), any(), any(), any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(eventRepository).updateViews(3, 7);
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void failedPageKeepsTheWrittenOnesAndIsRetriedAtTheNextRefresh() {
+        when(statsClient.getHitCounts(any(), any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new long[]{5, 6}))
+                .thenReturn(CompletableFuture.failedFuture(new StatsServerException("unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(new long[]{5, 6}))
+                .thenReturn(CompletableFuture.completedFuture(new long[]{7}));
+        EventViewsRefresher refresher = refresher();
+
+        refresher.refresh();
+
+        verify(transactionManager, times(1)).commit(any());
+        verify(eventRepository, never()).updateViews(3, 7);
+
+        refresher.refresh();
+
+        verify(eventRepository).updateViews(3, 7);
+    }
+
+    @Test
+    void readyProjectionCopiesChangedViewsAndKeepsThemChangedOnFailure() {
+        when(projection.isReady()).thenReturn(true);
+        when(projection.drainChanged()).thenReturn(List.of(4, 5));
+        when(projection.getViews(4, true)).thenReturn(10L);
+        doThrow(new IllegalStateException("database unavailable")).when(eventRepository).updateViews(5, 0);
+
+        assertThatThrownBy(() -> refresher().refresh()).hasMessage("database unavailable");
+
+        verify(eventRepository).updateViews(4, 10);
+        verify(transactionManager).rollback(any());
+        verify(projection).markChanged(List.of(4, 5));
+        verify(statsClient, never()).getHitCounts(any(), any(), any(), any(), any(), any());
+        verify(eventRepository, never()).findIdsAfter(anyInt(), any());
+        verify(eventRepository, times(2)).updateViews(anyInt(), anyLong());
+    }
+
+    private EventViewsRefresher refresher() {
+        return new EventViewsRefresher(projection, eventRepository, statsClient,
+                new TransactionTemplate(transactionManager), 60_000, PAGE_SIZE);
+    }
+}
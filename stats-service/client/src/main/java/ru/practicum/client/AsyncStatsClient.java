@@ -0,0 +1,50 @@
+package ru.practicum.client;
+
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stats-server calls whose results arrive as futures, so callers can do other work meanwhile.
+ * {@code stats-server.client} picks the implementation: {@code rest} (default) runs the blocking
+ * {@link StatsClient} on the calling thread, {@code webclient} sends non-blocking requests with
+ * {@link WebClientStatsClient}. Both degrade the same way when stats-server is unavailable.
+ */
+public interface AsyncStatsClient {
+    /**
+     * Range of {@link #getHitCounts} calls that count every hit ever logged. Fixed bounds, unlike ones taken
+     * from the current time, let concurrent identical calls share one request.
+     */
+    LocalDateTime ALL_TIME_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    LocalDateTime ALL_TIME_END = LocalDateTime.of(3000, 1, 1, 0, 0);
+
+    CompletableFuture<Void> addStat(EndpointHitDto hit);
+
+    /**
+     * See {@link StatsClient#getStat}; an empty list when stats-server is unavailable.
+     */
+    CompletableFuture<List<ViewStatsDto>> getStat(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                                  Boolean unique);
+
+    /**
+     * See {@link StatsClient#getHitCounts}; fails with {@link StatsServerException} when stats-server is
+     * unavailable.
+     */
+    CompletableFuture<long[]> getHitCounts(LocalDateTime start, LocalDateTime end, String app, String uriPrefix,
+                                           List<Long> ids, Boolean unique);
+
+    /**
+     * See {@link StatsClient#getTotalHitCounts}; last known counts when stats-server is unavailable.
+     */
+    CompletableFuture<long[]> getTotalHitCounts(String app, String uriPrefix, List<Long> ids, Boolean unique);
+
+    /**
+     * See {@link StatsClient#getDelta}; fails with {@link StatsServerException} when stats-server is unavailable.
+     */
+    CompletableFuture<StatsDeltaDto> getDelta(long since, String app, String prefix, int limit);
+}
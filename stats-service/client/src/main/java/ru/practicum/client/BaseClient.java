@@ -5,6 +5,7 @@ import org.springframework.http.*;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import ru.practicum.dto.ViewStatsDto;
 
@@ -23,7 +24,15 @@ public class BaseClient {
     }
 
     protected  ResponseEntity<ViewStatsDto[]> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
-        return getMakeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
+        return getMakeAndSendRequest(HttpMethod.GET, path, userId, parameters, null, ViewStatsDto[].class);
+    }
+
+    protected <R> ResponseEntity<R> get(String path, @Nullable Map<String, Object> parameters, Class<R> responseType) {
+        return getMakeAndSendRequest(HttpMethod.GET, path, null, parameters, null, responseType);
+    }
+
+    protected <T, R> ResponseEntity<R> post(String path, T body, Class<R> responseType) {
+        return getMakeAndSendRequest(HttpMethod.POST, path, null, null, body, responseType);
     }
 
     protected <T> ResponseEntity<Object> post(String path, T body) {
@@ -50,19 +59,21 @@ public class BaseClient {
         return prepareGatewayResponse(statServerResponse);
     }
 
-    private <T> ResponseEntity<ViewStatsDto[]> getMakeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+    private <T, R> ResponseEntity<R> getMakeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body, Class<R> responseType) {
         HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
 
-        ResponseEntity<ViewStatsDto[]> statServerResponse;
+        ResponseEntity<R> statServerResponse;
         try {
             if (parameters != null) {
-                statServerResponse = rest.exchange(path, method, requestEntity, ViewStatsDto[].class, parameters);
+                statServerResponse = rest.exchange(path, method, requestEntity, responseType, parameters);
             } else {
-                statServerResponse = rest.exchange(path, method, requestEntity, ViewStatsDto[].class);
+                statServerResponse = rest.exchange(path, method, requestEntity, responseType);
             }
         } catch (HttpStatusCodeException e) {
             log.info(e.getMessage(), e);
-            throw new RuntimeException();
+            throw new StatsServerException(e.getStatusCode(), e.getMessage(), e);
+        } catch (RestClientException e) {
+            throw new StatsServerException(null, e.getMessage(), e);
         }
         return getPrepareGatewayResponse(statServerResponse);
     }
@@ -92,7 +103,7 @@ public class BaseClient {
         return responseBuilder.build();
     }
 
-    private static ResponseEntity<ViewStatsDto[]> getPrepareGatewayResponse(ResponseEntity<ViewStatsDto[]> response) {
+    private static <R> ResponseEntity<R> getPrepareGatewayResponse(ResponseEntity<R> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
             return response;
         }
@@ -0,0 +1,150 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker of stats-server calls. After {@code failure-threshold} consecutive failures (errors that are the
+ * server's fault, or calls slower than {@code slow-call-ms}) it opens and rejects calls at once for
+ * {@code open-ms}; then a single probe call is let through, which closes it again on success.
+ */
+@Slf4j
+@Component
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter rejectedCounter;
+
+    public CircuitBreaker(@Value("${stats-server.circuit.enabled:true}") boolean enabled,
+                          @Value("${stats-server.circuit.failure-threshold:5}") int failureThreshold,
+                          @Value("${stats-server.circuit.open-ms:10000}") long openMs,
+                          @Value("${stats-server.circuit.slow-call-ms:1000}") long slowCallMs,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+
+        Gauge.builder("stats.client.circuit.state", state, s -> s.get().ordinal()).register(meterRegistry);
+        this.successCounter = meterRegistry.counter("stats.client.circuit.calls", "result", "success");
+        this.failureCounter = meterRegistry.counter("stats.client.circuit.calls", "result", "failure");
+        this.rejectedCounter = meterRegistry.counter("stats.client.circuit.calls", "result", "rejected");
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Runs the call unless the breaker is open, in which case a {@link StatsServerException} is thrown at once.
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        if (!allow()) {
+            rejectedCounter.increment();
+            throw new StatsServerException("Stats-server circuit breaker is open");
+        }
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            record(e, start);
+            throw e;
+        }
+        record(null, start);
+        return result;
+    }
+
+    /**
+     * Same as {@link #call} for a call that does not block; when the breaker is open the future fails at once.
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        if (!allow()) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(new StatsServerException("Stats-server circuit breaker is open"));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            record(e, start);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) ->
+                record(error instanceof CompletionException ? error.getCause() : error, start));
+    }
+
+    private void record(Throwable error, long start) {
+        if (error == null) {
+            if (System.nanoTime() - start > slowCallNanos) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+        } else if (error instanceof StatsServerException && !((StatsServerException) error).isServerFailure()) {
+            onSuccess();
+        } else {
+            onFailure();
+        }
+    }
+
+    private boolean allow() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        // Only the caller that moves the breaker to half-open gets through as the probe.
+        return current == State.OPEN && System.nanoTime() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void onSuccess() {
+        successCounter.increment();
+        consecutiveFailures.set(0);
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            log.info("Stats-server circuit breaker closed");
+        }
+    }
+
+    private void onFailure() {
+        failureCounter.increment();
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || state.get() == State.HALF_OPEN) {
+            openedAt = System.nanoTime();
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                log.warn("Stats-server circuit breaker opened after {} failed calls", consecutiveFailures.get());
+            }
+        }
+    }
+}
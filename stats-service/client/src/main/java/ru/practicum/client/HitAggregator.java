@@ -0,0 +1,157 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitDto;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collapses bursts of identical (app, uri, ip) hits. The first hit of a burst is sent as usual, so the visitor's
+ * own view shows up at once; repeats arriving within {@code window-ms} of it are only counted and sent together
+ * as one record carrying their number in {@code hits} once the window closes. Unique counts are unaffected, as the
+ * first hit already carries the ip; raw counts lag by at most the window.
+ */
+@Slf4j
+@Component
+public class HitAggregator {
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxEntries;
+    private final Map<Key, Burst> bursts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private Consumer<List<EndpointHitDto>> sink;
+
+    private final Counter collapsedCounter;
+
+    public HitAggregator(@Value("${stats-server.hit-aggregation.enabled:false}") boolean enabled,
+                         @Value("${stats-server.hit-aggregation.window-ms:1000}") long windowMs,
+                         @Value("${stats-server.hit-aggregation.max-entries:10000}") int maxEntries,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxEntries = maxEntries;
+
+        Gauge.builder("stats.client.hit-aggregation.bursts", bursts, Map::size).register(meterRegistry);
+        this.collapsedCounter = meterRegistry.counter("stats.client.hits", "result", "collapsed");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts closing windows in the background; the sink gets the collapsed records of closed windows.
+     */
+    synchronized void start(Consumer<List<EndpointHitDto>> sink) {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        this.sink = sink;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodNanos = Math.max(windowNanos / 4, TimeUnit.MILLISECONDS.toNanos(10));
+        flusher.scheduleWithFixedDelay(() -> flush(false), periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns true if the hit opens a burst and must be sent now, false if it was counted into an open one.
+     * While {@code max-entries} bursts are open, hits of new visitors are sent without opening one.
+     */
+    public boolean admit(EndpointHitDto hit) {
+        if (!enabled) {
+            return true;
+        }
+        Key key = new Key(hit.getApp(), hit.getUri(), hit.getIp());
+        boolean[] opened = new boolean[1];
+        bursts.compute(key, (k, burst) -> {
+            if (burst == null) {
+                opened[0] = true;
+                return bursts.size() < maxEntries ? new Burst(System.nanoTime()) : null;
+            }
+            burst.add(hit);
+            return burst;
+        });
+        if (!opened[0]) {
+            collapsedCounter.increment();
+        }
+        return opened[0];
+    }
+
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            flush(true);
+        }
+    }
+
+    private void flush(boolean all) {
+        List<EndpointHitDto> records = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Map.Entry<Key, Burst> entry : bursts.entrySet()) {
+            Burst burst = entry.getValue();
+            // Removed under the map's lock of the key, so no repeat is added to a burst once it is taken out.
+            if ((all || now - burst.openedNanos >= windowNanos) && bursts.remove(entry.getKey(), burst)
+                    && burst.repeats > 0) {
+                Key key = entry.getKey();
+                records.add(new EndpointHitDto(key.app, key.uri, key.ip, burst.firstRepeat, burst.repeats));
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            sink.accept(records);
+        } catch (RuntimeException e) {
+            log.warn("Failed to send {} collapsed hit records", records.size(), e);
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String app;
+        private final String uri;
+        private final String ip;
+    }
+
+    // Only changed inside ConcurrentHashMap.compute, which also publishes the changes.
+    private static class Burst {
+        private final long openedNanos;
+        private int repeats;
+        private LocalDateTime firstRepeat;
+
+        Burst(long openedNanos) {
+            this.openedNanos = openedNanos;
+        }
+
+        void add(EndpointHitDto hit) {
+            if (repeats++ == 0) {
+                firstRepeat = hit.getCreated();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitDto;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded queue of hits drained by one background thread that posts them to stats-server in batches, so
+ * logging a hit never waits for stats-server. When the queue is full either the new hit ({@code DROP_NEWEST})
+ * or the oldest queued one ({@code DROP_OLDEST}) is dropped. Failed batches are retried with exponential
+ * backoff and dropped after {@code max-attempts}.
+ * Hits still queued when the application stops are flushed once, without retries.
+ */
+@Slf4j
+@Component
+public class HitSender {
+    public enum OverflowPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST
+    }
+
+    private static final long POLL_MILLIS = 100;
+
+    private final boolean enabled;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long shutdownTimeoutMs;
+    private volatile boolean running;
+    private Thread thread;
+
+    private final Counter queuedCounter;
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+
+    public HitSender(@Value("${stats-server.async-hits.enabled:false}") boolean enabled,
+                     @Value("${stats-server.async-hits.queue-capacity:10000}") int queueCapacity,
+                     @Value("${stats-server.async-hits.overflow:DROP_NEWEST}") OverflowPolicy overflowPolicy,
+                     @Value("${stats-server.async-hits.batch-size:100}") int batchSize,
+                     @Value("${stats-server.async-hits.max-attempts:5}") int maxAttempts,
+                     @Value("${stats-server.async-hits.initial-backoff-ms:100}") long initialBackoffMs,
+                     @Value("${stats-server.async-hits.max-backoff-ms:5000}") long maxBackoffMs,
+                     @Value("${stats-server.async-hits.shutdown-timeout-ms:5000}") long shutdownTimeoutMs,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+        Gauge.builder("stats.client.hits.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        this.queuedCounter = meterRegistry.counter("stats.client.hits", "result", "queued");
+        this.sentCounter = meterRegistry.counter("stats.client.hits", "result", "sent");
+        this.droppedCounter = meterRegistry.counter("stats.client.hits", "result", "dropped");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the background thread. The sender returns whether stats-server took the batch and throws when
+     * the failure is worth a retry.
+     */
+    synchronized void start(Predicate<List<EndpointHitDto>> sender) {
+        if (!enabled || thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(() -> drain(sender), "stats-hit-sender");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues the hit; returns false if it was dropped because the queue is full.
+     */
+    public boolean offer(EndpointHitDto hit) {
+        if (queue.offer(hit)) {
+            queuedCounter.increment();
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST && queue.poll() != null) {
+            droppedCounter.increment();
+            if (queue.offer(hit)) {
+                queuedCounter.increment();
+                return true;
+            }
+        }
+        droppedCounter.increment();
+        log.debug("Hit queue is full, dropping hit {}", hit);
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread sender;
+        synchronized (this) {
+            sender = thread;
+            running = false;
+        }
+        if (sender != null) {
+            sender.join(shutdownTimeoutMs);
+            if (!queue.isEmpty()) {
+                log.warn("Stopped with {} hits not sent to stats-server", queue.size());
+            }
+        }
+    }
+
+    private void drain(Predicate<List<EndpointHitDto>> sender) {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                EndpointHitDto first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch, sender);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<EndpointHitDto> batch, Predicate<List<EndpointHitDto>> sender) throws InterruptedException {
+        long backoffMs = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (sender.test(batch)) {
+                    sentCounter.increment(batch.size());
+                } else {
+                    log.warn("Stats-server rejected a batch of {} hits, dropping it", batch.size());
+                    droppedCounter.increment(batch.size());
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !running) {
+                    log.warn("Dropping {} hits after {} attempts: {}", batch.size(), attempt, e.getMessage());
+                    droppedCounter.increment(batch.size());
+                    return;
+                }
+                log.debug("Sending {} hits failed on attempt {}, retrying in {} ms: {}",
+                        batch.size(), attempt, backoffMs, e.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+}
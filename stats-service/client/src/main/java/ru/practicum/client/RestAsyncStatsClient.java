@@ -0,0 +1,62 @@
+package ru.practicum.client;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AsyncStatsClient} over the blocking {@link StatsClient}: every call runs on the calling thread and
+ * returns an already completed future.
+ */
+@Component
+@ConditionalOnProperty(name = "stats-server.client", havingValue = "rest", matchIfMissing = true)
+public class RestAsyncStatsClient implements AsyncStatsClient {
+    private final StatsClient statsClient;
+
+    public RestAsyncStatsClient(StatsClient statsClient) {
+        this.statsClient = statsClient;
+    }
+
+    @Override
+    public CompletableFuture<Void> addStat(EndpointHitDto hit) {
+        statsClient.addStat(hit);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<List<ViewStatsDto>> getStat(LocalDateTime start, LocalDateTime end,
+                                                         Collection<String> uris, Boolean unique) {
+        return CompletableFuture.completedFuture(statsClient.getStat(start, end, uris, unique));
+    }
+
+    @Override
+    public CompletableFuture<long[]> getHitCounts(LocalDateTime start, LocalDateTime end, String app,
+                                                  String uriPrefix, List<Long> ids, Boolean unique) {
+        try {
+            return CompletableFuture.completedFuture(statsClient.getHitCounts(start, end, app, uriPrefix, ids, unique));
+        } catch (StatsServerException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<long[]> getTotalHitCounts(String app, String uriPrefix, List<Long> ids, Boolean unique) {
+        return CompletableFuture.completedFuture(statsClient.getTotalHitCounts(app, uriPrefix, ids, unique));
+    }
+
+    @Override
+    public CompletableFuture<StatsDeltaDto> getDelta(long since, String app, String prefix, int limit) {
+        try {
+            return CompletableFuture.completedFuture(statsClient.getDelta(since, app, prefix, limit));
+        } catch (StatsServerException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
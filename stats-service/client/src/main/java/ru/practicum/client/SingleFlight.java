@@ -0,0 +1,114 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: the first caller of a key runs the call, callers arriving while it is
+ * in flight wait for it and get the same result or exception. Nothing is kept once the call has finished.
+ * {@code stats.client.single-flight.coalescing.ratio} is the share of calls that were served by another one.
+ */
+@Component
+public class SingleFlight {
+    private final boolean enabled;
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executedCounter;
+    private final Counter coalescedCounter;
+
+    public SingleFlight(@Value("${stats-server.single-flight.enabled:true}") boolean enabled,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+
+        this.executedCounter = meterRegistry.counter("stats.client.single-flight.calls", "result", "executed");
+        this.coalescedCounter = meterRegistry.counter("stats.client.single-flight.calls", "result", "coalesced");
+        Gauge.builder("stats.client.single-flight.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .register(meterRegistry);
+        Gauge.builder("stats.client.single-flight.in-flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Runs the call, or joins the identical one already running; keys must implement equals and hashCode.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalescedCounter.increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        executedCounter.increment();
+        try {
+            T result = call.get();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too, or the callers waiting for this one would wait forever.
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Same as {@link #execute} for a call that does not block.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(Object key, Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalescedCounter.increment();
+            // A dependent future, so a caller completing or cancelling its own does not touch the shared one.
+            return running.thenApply(result -> (T) result);
+        }
+
+        executedCounter.increment();
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (Throwable e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((result, error) -> {
+            inFlight.remove(key, future);
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future.thenApply(result -> (T) result);
+    }
+
+    private double coalescingRatio() {
+        double executed = executedCounter.count();
+        double coalesced = coalescedCounter.count();
+        return executed + coalesced == 0 ? 0 : coalesced / (executed + coalesced);
+    }
+}
@@ -3,38 +3,183 @@ package ru.practicum.client;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsCountQueryDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.WindowStatsDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Blocking stats-server client on {@link org.springframework.web.client.RestTemplate}; only created with
+ * {@code stats-server.client=rest}, where {@link RestAsyncStatsClient} wraps it.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "stats-server.client", havingValue = "rest", matchIfMissing = true)
 public class StatsClient extends BaseClient {
+    static final Pattern NUMBERED_URI = Pattern.compile("(.*/)(0|[1-9]\\d{0,17})");
+    // Most hits of one POST /hit/batch, the default stats.hit-batch.max-size of stats-server.
+    static final int MAX_HIT_BATCH = 1000;
+
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final int postQueryThreshold;
+    private final HitSender hitSender;
+    private final HitAggregator hitAggregator;
+    private final ViewCountCache viewCountCache;
+    private final SingleFlight singleFlight;
+    private final CircuitBreaker circuitBreaker;
 
     @Autowired
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-server.post-query-threshold:50}") int postQueryThreshold,
+                       RestTemplateBuilder builder,
+                       StatsConnectionPool connectionPool,
+                       HitSender hitSender,
+                       HitAggregator hitAggregator,
+                       ViewCountCache viewCountCache,
+                       SingleFlight singleFlight,
+                       CircuitBreaker circuitBreaker) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .requestFactory(connectionPool::requestFactory)
                         .build()
         );
+        this.postQueryThreshold = postQueryThreshold;
+        this.hitSender = hitSender;
+        this.hitAggregator = hitAggregator;
+        this.viewCountCache = viewCountCache;
+        this.singleFlight = singleFlight;
+        this.circuitBreaker = circuitBreaker;
+        hitSender.start(this::sendBatch);
+        hitAggregator.start(this::sendCollapsed);
     }
 
+    /**
+     * With {@code stats-server.async-hits.enabled} the hit is only queued for {@link HitSender} and the answer is
+     * 202, or 503 if the queue dropped it; otherwise it is posted right away through {@link CircuitBreaker}, and
+     * a failed or rejected post is logged and answered 503 instead of thrown. A repeat that {@link HitAggregator}
+     * collapsed into an earlier hit is answered 202 and sent later.
+     */
     public ResponseEntity<Object> addStat(EndpointHitDto createStatDto) {
-        return post("/hit", createStatDto);
+        if (!hitAggregator.admit(createStatDto)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+        }
+        if (hitSender.isEnabled()) {
+            return ResponseEntity.status(hitSender.offer(createStatDto) ? HttpStatus.ACCEPTED :
+                    HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        ResponseEntity<Object> response;
+        try {
+            response = circuitBreaker.call(() -> {
+                ResponseEntity<Object> answer = post("/hit", createStatDto);
+                if (answer.getStatusCode().is5xxServerError()) {
+                    throw new StatsServerException(answer.getStatusCode(), "Stats-server answered " +
+                            answer.getStatusCode(), null);
+                }
+                return answer;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Hit of {} not saved: {}", createStatDto.getUri(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            viewCountCache.recordHit(createStatDto);
+        } else {
+            log.warn("Hit of {} rejected by stats-server: {}", createStatDto.getUri(), response.getStatusCode());
+        }
+        return response;
+    }
+
+    /**
+     * Posts the hits as one batch through {@link CircuitBreaker}. Like {@link #addStat}, a failed post is logged
+     * and answered 503 instead of thrown, a rejected one is answered with the status of stats-server, and only
+     * accepted hits are added to the cached view counts.
+     */
+    public ResponseEntity<Object> addStats(Collection<EndpointHitDto> createStatDtos) {
+        ResponseEntity<Object> response;
+        try {
+            response = postBatch(createStatDtos);
+        } catch (StatsServerException e) {
+            if (!e.isServerFailure()) {
+                log.warn("Batch of {} hits rejected by stats-server: {}", createStatDtos.size(), e.getStatus());
+                return ResponseEntity.status(e.getStatus()).build();
+            }
+            log.warn("Batch of {} hits not saved: {}", createStatDtos.size(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        createStatDtos.forEach(viewCountCache::recordHit);
+        return response;
+    }
+
+    boolean sendBatch(List<EndpointHitDto> hits) {
+        try {
+            postBatch(hits);
+        } catch (StatsServerException e) {
+            if (!e.isServerFailure()) {
+                return false;
+            }
+            throw e;
+        }
+        hits.forEach(viewCountCache::recordHit);
+        return true;
+    }
+
+    // Error answers and unreachable stats-server both end up as StatsServerException.
+    private ResponseEntity<Object> postBatch(Collection<EndpointHitDto> hits) {
+        return circuitBreaker.call(() -> post("/hit/batch", hits, Object.class));
     }
 
+    private void sendCollapsed(List<EndpointHitDto> hits) {
+        if (hitSender.isEnabled()) {
+            hits.forEach(hitSender::offer);
+        } else {
+            // Each chunk on its own, so one that fails does not cost the ones after it.
+            for (int from = 0; from < hits.size(); from += MAX_HIT_BATCH) {
+                List<EndpointHitDto> chunk = hits.subList(from, Math.min(hits.size(), from + MAX_HIT_BATCH));
+                try {
+                    if (!sendBatch(chunk)) {
+                        log.warn("Stats-server rejected {} collapsed hit records", chunk.size());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to send {} collapsed hit records: {}", chunk.size(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Above {@code stats-server.post-query-threshold} uris the query goes to {@code POST /stats/query} instead of
+     * the query string. Identical lookups running at the same time share one request (see {@link SingleFlight}),
+     * as do those of the other stats methods. All of them go through {@link CircuitBreaker}; when stats-server
+     * fails or the breaker is open this one degrades to no stats, that is zero views.
+     */
     public List<ViewStatsDto> getStat(LocalDateTime start, LocalDateTime end, Collection<String> uris, Boolean unique) {
+        try {
+            return uris.size() > postQueryThreshold ? queryStat(start, end, uris, unique) :
+                    fetchStat(start, end, uris, unique);
+        } catch (StatsServerException e) {
+            log.debug("Stats of {} uris unavailable, answering without them: {}", uris.size(), e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private List<ViewStatsDto> fetchStat(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                         Boolean unique) {
         Map<String, Object> parameters = Map.of(
                 "start", start.format(formatter),
                 "end", end.format(formatter),
@@ -43,13 +188,149 @@ public class StatsClient extends BaseClient {
         );
         String queryString = "?start={start}&end={end}&uris={uris}&unique={unique}";
 
-        ResponseEntity<ViewStatsDto[]> responseEntity = get("/stats" + queryString, null, parameters);
+        ViewStatsDto[] stats = singleFlight.execute(List.of("/stats", parameters),
+                () -> circuitBreaker.call(() -> get("/stats" + queryString, null, parameters).getBody()));
+
+        return toList(stats, StatsClient::copy);
+    }
+
+    private List<ViewStatsDto> queryStat(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                         Boolean unique) {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(start.format(formatter))
+                .end(end.format(formatter))
+                .unique(unique)
+                .build();
+        // Uris like /events/{id} under one prefix travel as a list of numbers.
+        String prefix = null;
+        List<Long> ids = new ArrayList<>();
+        for (String uri : uris) {
+            Matcher matcher = NUMBERED_URI.matcher(uri);
+            if (!matcher.matches() || (prefix != null && !prefix.equals(matcher.group(1)))) {
+                ids = null;
+                break;
+            }
+            prefix = matcher.group(1);
+            ids.add(Long.parseLong(matcher.group(2)));
+        }
+        if (ids != null) {
+            query.setUriPrefix(prefix);
+            query.setIds(ids);
+        } else {
+            query.setUris(new ArrayList<>(uris));
+        }
+
+        List<Object> key = Arrays.asList("/stats/query", query.getStart(), query.getEnd(), query.getUris(),
+                query.getUriPrefix(), query.getIds(), unique);
+        ViewStatsDto[] stats = singleFlight.execute(key,
+                () -> circuitBreaker.call(() -> post("/stats/query", query, ViewStatsDto[].class).getBody()));
+
+        return toList(stats, StatsClient::copy);
+    }
+
+    /**
+     * Hits of {@code uriPrefix + id} logged by {@code app} for every id, as an array parallel to {@code ids}.
+     * Nothing but the numbers travels in either direction.
+     */
+    public long[] getHitCounts(LocalDateTime start, LocalDateTime end, String app, String uriPrefix, List<Long> ids,
+                               Boolean unique) {
+        if (ids.isEmpty()) {
+            return new long[0];
+        }
+        StatsCountQueryDto query = StatsCountQueryDto.builder()
+                .start(start.format(formatter))
+                .end(end.format(formatter))
+                .app(app)
+                .uriPrefix(uriPrefix)
+                .ids(ids)
+                .unique(unique)
+                .build();
+
+        List<Object> key = Arrays.asList("/stats/counts", query.getStart(), query.getEnd(), app, uriPrefix, ids, unique);
+        long[] counts = singleFlight.execute(key,
+                () -> circuitBreaker.call(() -> post("/stats/counts", query, long[].class).getBody()));
+
+        // Copied because coalesced callers get the same array.
+        return counts != null ? counts.clone() : new long[ids.size()];
+    }
+
+    /**
+     * All-time hits of {@code uriPrefix + id} logged by {@code app}, like {@link #getHitCounts}, with counts
+     * taken from {@link ViewCountCache} while they are fresh. When stats-server fails or the circuit breaker is
+     * open, the last counts ever cached are returned, or zero.
+     */
+    public long[] getTotalHitCounts(String app, String uriPrefix, List<Long> ids, Boolean unique) {
+        try {
+            return viewCountCache.get(app, uriPrefix, ids, Boolean.TRUE.equals(unique),
+                    missing -> getHitCounts(AsyncStatsClient.ALL_TIME_START, AsyncStatsClient.ALL_TIME_END,
+                            app, uriPrefix, missing, unique));
+        } catch (StatsServerException e) {
+            log.debug("Hit counts of {} uris under {} unavailable, answering last known ones: {}",
+                    ids.size(), uriPrefix, e.getMessage());
+            return viewCountCache.getLastKnown(app, uriPrefix, ids, Boolean.TRUE.equals(unique));
+        }
+    }
+
+    /**
+     * Hits per (app, uri) for several windows ending at {@code end} (for example {@code 1h}, {@code 7d}, {@code all}),
+     * counted by stats-server in a single scan.
+     */
+    public List<WindowStatsDto> getWindowStat(LocalDateTime end, Collection<String> windows, Collection<String> uris,
+                                              Boolean unique) {
+        Map<String, Object> parameters = Map.of(
+                "end", end.format(formatter),
+                "windows", String.join(",", windows),
+                "uris", String.join(",", uris),
+                "unique", unique
+        );
+        String queryString = "?end={end}&windows={windows}&uris={uris}&unique={unique}";
 
-        ViewStatsDto[] stats = responseEntity.getBody();
+        WindowStatsDto[] stats = singleFlight.execute(List.of("/stats/windows", parameters),
+                () -> circuitBreaker.call(() -> get("/stats/windows" + queryString, parameters,
+                        WindowStatsDto[].class).getBody()));
+
+        return toList(stats, StatsClient::copy);
+    }
 
-        if (stats != null && stats.length > 0) {
-            return Arrays.asList(stats);
+    /**
+     * Page of the counter change feed after {@code since}; see {@link StatsDeltaDto}. Goes through
+     * {@link CircuitBreaker} and throws {@link StatsServerException} when stats-server is unavailable.
+     */
+    public StatsDeltaDto getDelta(long since, String app, String prefix, int limit) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("since", since);
+        parameters.put("limit", limit);
+        String queryString = "?since={since}&limit={limit}";
+        if (app != null) {
+            parameters.put("app", app);
+            queryString += "&app={app}";
         }
-        return new ArrayList<>();
+        if (prefix != null) {
+            parameters.put("prefix", prefix);
+            queryString += "&prefix={prefix}";
+        }
+
+        String path = "/stats/delta" + queryString;
+        return circuitBreaker.call(() -> get(path, parameters, StatsDeltaDto.class).getBody());
+    }
+
+    // Coalesced callers get the same array, so each one gets its own list of its own copies.
+    private static <T> List<T> toList(T[] items, UnaryOperator<T> copy) {
+        List<T> list = new ArrayList<>();
+        if (items != null) {
+            for (T item : items) {
+                list.add(copy.apply(item));
+            }
+        }
+        return list;
+    }
+
+    private static ViewStatsDto copy(ViewStatsDto stats) {
+        return new ViewStatsDto(stats.getApp(), stats.getUri(), stats.getHits());
+    }
+
+    private static WindowStatsDto copy(WindowStatsDto stats) {
+        return new WindowStatsDto(stats.getApp(), stats.getUri(),
+                stats.getHits() != null ? new LinkedHashMap<>(stats.getHits()) : null);
     }
 }
@@ -0,0 +1,112 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Keep-alive connection pool of the stats client with bounded waits everywhere: connecting
+ * ({@code connect-timeout-ms}), waiting for a free pooled connection ({@code pool-timeout-ms}) and waiting for
+ * an answer ({@code read-timeout-ms}). A slow stats-server thus costs a caller at most those timeouts instead
+ * of holding its thread indefinitely. On top of those, a call still running {@code deadline-ms} after it started
+ * is aborted, so a server that trickles its answer cannot stretch a call past that either.
+ * Connections idle longer than {@code keep-alive-ms} are closed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.client", havingValue = "rest", matchIfMissing = true)
+public class StatsConnectionPool {
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final long deadlineMs;
+    private final ScheduledExecutorService deadlines;
+
+    public StatsConnectionPool(@Value("${stats-server.http.max-connections:50}") int maxConnections,
+                               @Value("${stats-server.http.max-connections-per-route:20}") int maxConnectionsPerRoute,
+                               @Value("${stats-server.http.connect-timeout-ms:1000}") int connectTimeoutMs,
+                               @Value("${stats-server.http.pool-timeout-ms:500}") int poolTimeoutMs,
+                               @Value("${stats-server.http.read-timeout-ms:5000}") int readTimeoutMs,
+                               @Value("${stats-server.http.keep-alive-ms:30000}") long keepAliveMs,
+                               @Value("${stats-server.http.deadline-ms:3000}") long deadlineMs,
+                               MeterRegistry meterRegistry) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(1000);
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMs)
+                        .setConnectionRequestTimeout(poolTimeoutMs)
+                        .setSocketTimeout(readTimeoutMs)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.deadlineMs = deadlineMs;
+        this.deadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-http-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        registerGauge(meterRegistry, "leased", stats -> stats.getTotalStats().getLeased());
+        registerGauge(meterRegistry, "available", stats -> stats.getTotalStats().getAvailable());
+        registerGauge(meterRegistry, "pending", stats -> stats.getTotalStats().getPending());
+        registerGauge(meterRegistry, "max", stats -> stats.getTotalStats().getMax());
+    }
+
+    public ClientHttpRequestFactory requestFactory() {
+        return new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+                HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+                // Aborting a request that has finished does nothing, its connection is back in the pool by then.
+                deadlines.schedule(request::abort, deadlineMs, TimeUnit.MILLISECONDS);
+                return request;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        deadlines.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Closing the stats-server connection pool failed: {}", e.getMessage());
+        }
+    }
+
+    private void registerGauge(MeterRegistry meterRegistry, String state,
+                               ToIntFunction<PoolingHttpClientConnectionManager> value) {
+        Gauge.builder("stats.client.http.connections", connectionManager, manager -> value.applyAsInt(manager))
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.client;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A stats-server call failed: it answered with an error {@link #getStatus() status}, could not be reached
+ * (no status) or was not attempted because the circuit breaker is open.
+ */
+public class StatsServerException extends RuntimeException {
+    private final HttpStatus status;
+
+    public StatsServerException(HttpStatus status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public StatsServerException(String message) {
+        this(null, message, null);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the failure says something about the health of stats-server, rather than about the request.
+     */
+    public boolean isServerFailure() {
+        return status == null || status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS;
+    }
+}
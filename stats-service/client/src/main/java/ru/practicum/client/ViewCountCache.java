@@ -0,0 +1,280 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitDto;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+/**
+ * LRU cache of all-time hit counts keyed by (app, uri prefix, id, unique). Entries live for {@code ttl-ms};
+ * one read after {@code refresh-after-ms} still gets the cached count but also reloads it in the background,
+ * so hot uris rarely expire. Missing counts of a batch are loaded together with one call.
+ * Hits logged through this client are added to the cached total of their uri, so an instance always sees its
+ * own hits without reloading; unique counts, which a hit may or may not raise, are expired by a hit, but not
+ * sooner than {@code min-reload-ms} after they were loaded. Hits of other instances show up within the TTL. Expired counts are
+ * kept until evicted as the last known ones, to answer with while stats-server is unavailable.
+ */
+@Slf4j
+@Component
+public class ViewCountCache {
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final long minReloadNanos;
+    private final Map<Key, Entry> entries;
+    // Keys being loaded, each with the sequence number of its load, negated by a hit that came meanwhile: the load
+    // may have missed that hit, so its counts are stored to expire after min-reload-ms only.
+    private final Map<Key, Long> loading = new ConcurrentHashMap<>();
+    private final AtomicLong loadSequence = new AtomicLong();
+    private final ExecutorService refresher;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter refreshCounter;
+    private final Counter fallbackCounter;
+
+    public ViewCountCache(@Value("${stats-server.view-cache.enabled:true}") boolean enabled,
+                          @Value("${stats-server.view-cache.max-entries:10000}") int maxEntries,
+                          @Value("${stats-server.view-cache.ttl-ms:30000}") long ttlMs,
+                          @Value("${stats-server.view-cache.refresh-after-ms:20000}") long refreshAfterMs,
+                          @Value("${stats-server.view-cache.min-reload-ms:1000}") long minReloadMs,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(refreshAfterMs);
+        this.minReloadNanos = TimeUnit.MILLISECONDS.toNanos(minReloadMs);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-view-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("stats.client.view-cache.size", entries, Map::size).register(meterRegistry);
+        this.hitCounter = meterRegistry.counter("stats.client.view-cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("stats.client.view-cache.requests", "result", "miss");
+        this.refreshCounter = meterRegistry.counter("stats.client.view-cache.requests", "result", "refresh");
+        this.fallbackCounter = meterRegistry.counter("stats.client.view-cache.requests", "result", "fallback");
+    }
+
+    /**
+     * Counts parallel to {@code ids}. Counts not cached or expired are loaded with a single call of the loader,
+     * which takes ids and returns counts parallel to them.
+     */
+    public long[] get(String app, String uriPrefix, List<Long> ids, boolean unique, Function<List<Long>, long[]> loader) {
+        try {
+            return getAsync(app, uriPrefix, ids, unique,
+                    missing -> CompletableFuture.completedFuture(loader.apply(missing))).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Same as {@link #get} with a loader that does not block.
+     */
+    public CompletableFuture<long[]> getAsync(String app, String uriPrefix, List<Long> ids, boolean unique,
+                                              Function<List<Long>, CompletableFuture<long[]>> loader) {
+        if (!enabled) {
+            return loader.apply(ids);
+        }
+        long[] counts = new long[ids.size()];
+        List<Integer> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+        long now = System.nanoTime();
+        for (int i = 0; i < counts.length; i++) {
+            Entry entry = entries.get(new Key(app, uriPrefix, ids.get(i), unique));
+            if (entry == null || now - entry.getExpiresNanos() >= 0) {
+                missing.add(i);
+                continue;
+            }
+            counts[i] = entry.getCount();
+            if (now - entry.getLoadedNanos() >= refreshAfterNanos && entry.getRefreshing().compareAndSet(false, true)) {
+                stale.add(ids.get(i));
+            }
+        }
+        hitCounter.increment(counts.length - missing.size());
+        missCounter.increment(missing.size());
+
+        CompletableFuture<long[]> result = CompletableFuture.completedFuture(counts);
+        if (!missing.isEmpty()) {
+            LinkedHashSet<Long> missingIds = new LinkedHashSet<>();
+            missing.forEach(i -> missingIds.add(ids.get(i)));
+            result = load(app, uriPrefix, new ArrayList<>(missingIds), unique, loader).thenApply(loaded -> {
+                missing.forEach(i -> counts[i] = loaded.get(ids.get(i)));
+                return counts;
+            });
+        }
+        if (!stale.isEmpty()) {
+            refreshCounter.increment(stale.size());
+            refresher.execute(() -> refresh(app, uriPrefix, stale, unique, loader));
+        }
+        return result;
+    }
+
+    /**
+     * Last counts ever loaded for the ids, however old, and zero for ids never loaded.
+     */
+    public long[] getLastKnown(String app, String uriPrefix, List<Long> ids, boolean unique) {
+        long[] counts = new long[ids.size()];
+        for (int i = 0; i < counts.length; i++) {
+            Entry entry = entries.get(new Key(app, uriPrefix, ids.get(i), unique));
+            counts[i] = entry == null ? 0 : entry.getCount();
+        }
+        fallbackCounter.increment(counts.length);
+        return counts;
+    }
+
+    /**
+     * Adds the hit to the cached counts of its uri, if it is a numbered one; called once the hit reached
+     * stats-server.
+     */
+    public void recordHit(EndpointHitDto hit) {
+        Matcher matcher = hit.getUri() == null ? null : StatsClient.NUMBERED_URI.matcher(hit.getUri());
+        if (matcher != null && matcher.matches()) {
+            recordHit(hit.getApp(), matcher.group(1), Long.parseLong(matcher.group(2)),
+                    hit.getHits() == null ? 1 : hit.getHits());
+        }
+    }
+
+    /**
+     * Adds {@code hits} to the cached total of {@code uriPrefix + id} and expires its unique count, no sooner
+     * than {@code min-reload-ms} after that count was loaded.
+     */
+    public void recordHit(String app, String uriPrefix, long id, long hits) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Key total = new Key(app, uriPrefix, id, false);
+            loading.computeIfPresent(total, (key, sequence) -> -Math.abs(sequence));
+            Entry entry = entries.get(total);
+            if (entry != null) {
+                entries.put(total, new Entry(entry.getCount() + hits, entry.getLoadedNanos(),
+                        entry.getExpiresNanos(), entry.getRefreshing()));
+            }
+
+            Key unique = new Key(app, uriPrefix, id, true);
+            loading.computeIfPresent(unique, (key, sequence) -> -Math.abs(sequence));
+            Entry uniqueEntry = entries.get(unique);
+            if (uniqueEntry != null) {
+                long expires = uniqueEntry.getLoadedNanos() + Math.max(now - uniqueEntry.getLoadedNanos(),
+                        minReloadNanos);
+                if (expires - uniqueEntry.getExpiresNanos() < 0) {
+                    entries.put(unique, new Entry(uniqueEntry.getCount(), uniqueEntry.getLoadedNanos(), expires,
+                            uniqueEntry.getRefreshing()));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh(String app, String uriPrefix, List<Long> ids, boolean unique,
+                         Function<List<Long>, CompletableFuture<long[]>> loader) {
+        load(app, uriPrefix, ids, unique, loader).whenComplete((loaded, e) -> {
+            if (e != null) {
+                log.debug("Refreshing {} view counts under {} failed: {}", ids.size(), uriPrefix, e.getMessage());
+                for (Long id : ids) {
+                    Entry entry = entries.get(new Key(app, uriPrefix, id, unique));
+                    if (entry != null) {
+                        entry.getRefreshing().set(false);
+                    }
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<Map<Long, Long>> load(String app, String uriPrefix, List<Long> ids, boolean unique,
+                                                    Function<List<Long>, CompletableFuture<long[]>> loader) {
+        long sequence = loadSequence.incrementAndGet();
+        List<Key> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Key key = new Key(app, uriPrefix, id, unique);
+            keys.add(key);
+            loading.put(key, sequence);
+        }
+        CompletableFuture<long[]> future;
+        try {
+            future = loader.apply(ids);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.handle((counts, error) -> {
+            if (error != null) {
+                keys.forEach(key -> {
+                    loading.remove(key, sequence);
+                    loading.remove(key, -sequence);
+                });
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            Map<Long, Long> loaded = new HashMap<>();
+            long now = System.nanoTime();
+            synchronized (entries) {
+                for (int i = 0; i < keys.size(); i++) {
+                    loaded.put(ids.get(i), counts[i]);
+                    if (loading.remove(keys.get(i), sequence)) {
+                        entries.put(keys.get(i), new Entry(counts[i], now, now + ttlNanos, new AtomicBoolean()));
+                    } else if (loading.remove(keys.get(i), -sequence)) {
+                        entries.put(keys.get(i), new Entry(counts[i], now, now + minReloadNanos, new AtomicBoolean()));
+                    }
+                }
+            }
+            return loaded;
+        });
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String app;
+        private final String uriPrefix;
+        private final long id;
+        private final boolean unique;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final long count;
+        private final long loadedNanos;
+        private final long expiresNanos;
+        private final AtomicBoolean refreshing;
+    }
+}
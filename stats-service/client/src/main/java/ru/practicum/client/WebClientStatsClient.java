@@ -0,0 +1,245 @@
+package ru.practicum.client;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsCountQueryDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking {@link AsyncStatsClient} on {@link WebClient}: no thread waits for stats-server, the futures
+ * complete on the reactor-netty event loop. Uses the same {@code stats-server.http.*} pool and timeout settings,
+ * hit pipeline ({@link HitAggregator}, {@link HitSender}), view cache, request coalescing and circuit breaker
+ * as {@link StatsClient}; with {@code stats-server.async-hits.enabled} off a hit is posted straight away,
+ * and a failed one is logged and lost.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.client", havingValue = "webclient")
+public class WebClientStatsClient implements AsyncStatsClient {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final Duration deadline;
+    private final HitSender hitSender;
+    private final HitAggregator hitAggregator;
+    private final ViewCountCache viewCountCache;
+    private final SingleFlight singleFlight;
+    private final CircuitBreaker circuitBreaker;
+
+    public WebClientStatsClient(@Value("${stats-server.url}") String serverUrl,
+                                @Value("${stats-server.http.max-connections-per-route:20}") int maxConnections,
+                                @Value("${stats-server.http.connect-timeout-ms:1000}") int connectTimeoutMs,
+                                @Value("${stats-server.http.pool-timeout-ms:500}") long poolTimeoutMs,
+                                @Value("${stats-server.http.read-timeout-ms:5000}") long readTimeoutMs,
+                                @Value("${stats-server.http.keep-alive-ms:30000}") long keepAliveMs,
+                                @Value("${stats-server.http.deadline-ms:3000}") long deadlineMs,
+                                WebClient.Builder builder,
+                                HitSender hitSender,
+                                HitAggregator hitAggregator,
+                                ViewCountCache viewCountCache,
+                                SingleFlight singleFlight,
+                                CircuitBreaker circuitBreaker) {
+        this.connectionProvider = ConnectionProvider.builder("stats-server")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(poolTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(keepAliveMs))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        this.webClient = builder
+                .baseUrl(serverUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        this.deadline = Duration.ofMillis(deadlineMs);
+        this.hitSender = hitSender;
+        this.hitAggregator = hitAggregator;
+        this.viewCountCache = viewCountCache;
+        this.singleFlight = singleFlight;
+        this.circuitBreaker = circuitBreaker;
+        hitSender.start(this::sendBatch);
+        hitAggregator.start(this::sendCollapsed);
+    }
+
+    @Override
+    public CompletableFuture<Void> addStat(EndpointHitDto hit) {
+        if (!hitAggregator.admit(hit)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (hitSender.isEnabled()) {
+            hitSender.offer(hit);
+            return CompletableFuture.completedFuture(null);
+        }
+        return circuitBreaker.callAsync(() -> post("/hit", hit, Void.class))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        log.warn("Hit of {} not saved: {}", hit.getUri(), error.getMessage());
+                    } else {
+                        viewCountCache.recordHit(hit);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<ViewStatsDto>> getStat(LocalDateTime start, LocalDateTime end,
+                                                         Collection<String> uris, Boolean unique) {
+        // Always the body form: it has no URL length limit and answers like GET /stats.
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(start.format(FORMATTER))
+                .end(end.format(FORMATTER))
+                .uris(new ArrayList<>(uris))
+                .unique(unique)
+                .build();
+
+        List<Object> key = Arrays.asList("/stats/query", query.getStart(), query.getEnd(), query.getUris(),
+                null, null, unique);
+        return singleFlight.executeAsync(key,
+                        () -> circuitBreaker.callAsync(() -> post("/stats/query", query, ViewStatsDto[].class)))
+                .handle((stats, error) -> {
+                    if (error != null) {
+                        log.debug("Stats of {} uris unavailable, answering without them: {}",
+                                uris.size(), error.getMessage());
+                        return new ArrayList<>();
+                    }
+                    // Coalesced callers get the same array, so each one gets its own copies.
+                    List<ViewStatsDto> copies = new ArrayList<>();
+                    if (stats != null) {
+                        for (ViewStatsDto item : stats) {
+                            copies.add(new ViewStatsDto(item.getApp(), item.getUri(), item.getHits()));
+                        }
+                    }
+                    return copies;
+                });
+    }
+
+    @Override
+    public CompletableFuture<long[]> getHitCounts(LocalDateTime start, LocalDateTime end, String app, String uriPrefix,
+                                                  List<Long> ids, Boolean unique) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new long[0]);
+        }
+        StatsCountQueryDto query = StatsCountQueryDto.builder()
+                .start(start.format(FORMATTER))
+                .end(end.format(FORMATTER))
+                .app(app)
+                .uriPrefix(uriPrefix)
+                .ids(ids)
+                .unique(unique)
+                .build();
+
+        List<Object> key = Arrays.asList("/stats/counts", query.getStart(), query.getEnd(), app, uriPrefix, ids, unique);
+        return singleFlight.executeAsync(key,
+                        () -> circuitBreaker.callAsync(() -> post("/stats/counts", query, long[].class)))
+                .thenApply(counts -> counts != null ? counts.clone() : new long[ids.size()]);
+    }
+
+    @Override
+    public CompletableFuture<StatsDeltaDto> getDelta(long since, String app, String prefix, int limit) {
+        return circuitBreaker.callAsync(() -> webClient.get()
+                .uri(builder -> builder.path("/stats/delta")
+                        .queryParam("since", since)
+                        .queryParam("limit", limit)
+                        .queryParamIfPresent("app", Optional.ofNullable(app))
+                        .queryParamIfPresent("prefix", Optional.ofNullable(prefix))
+                        .build())
+                .retrieve()
+                .bodyToMono(StatsDeltaDto.class)
+                .timeout(deadline)
+                .onErrorMap(error -> !(error instanceof StatsServerException), WebClientStatsClient::toStatsServerException)
+                .toFuture());
+    }
+
+    @Override
+    public CompletableFuture<long[]> getTotalHitCounts(String app, String uriPrefix, List<Long> ids, Boolean unique) {
+        boolean uniqueIp = Boolean.TRUE.equals(unique);
+        return viewCountCache.getAsync(app, uriPrefix, ids, uniqueIp,
+                        missing -> getHitCounts(ALL_TIME_START, ALL_TIME_END,
+                                app, uriPrefix, missing, unique))
+                .exceptionally(error -> {
+                    log.debug("Hit counts of {} uris under {} unavailable, answering last known ones: {}",
+                            ids.size(), uriPrefix, error.getMessage());
+                    return viewCountCache.getLastKnown(app, uriPrefix, ids, uniqueIp);
+                });
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+
+    // Runs on the HitSender thread, which may block.
+    private boolean sendBatch(List<EndpointHitDto> hits) {
+        try {
+            post("/hit/batch", hits, Void.class).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof StatsServerException && !((StatsServerException) e.getCause()).isServerFailure()) {
+                return false;
+            }
+            throw e;
+        }
+        hits.forEach(viewCountCache::recordHit);
+        return true;
+    }
+
+    private void sendCollapsed(List<EndpointHitDto> hits) {
+        if (hitSender.isEnabled()) {
+            hits.forEach(hitSender::offer);
+        } else {
+            // Each chunk on its own, so one that fails does not cost the ones after it.
+            for (int from = 0; from < hits.size(); from += StatsClient.MAX_HIT_BATCH) {
+                List<EndpointHitDto> chunk = hits.subList(from, Math.min(hits.size(), from + StatsClient.MAX_HIT_BATCH));
+                try {
+                    if (!sendBatch(chunk)) {
+                        log.warn("Stats-server rejected {} collapsed hit records", chunk.size());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to send {} collapsed hit records: {}", chunk.size(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private <R> CompletableFuture<R> post(String path, Object body, Class<R> responseType) {
+        return webClient.post()
+                .uri(path)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(responseType)
+                .timeout(deadline)
+                .onErrorMap(error -> !(error instanceof StatsServerException), WebClientStatsClient::toStatsServerException)
+                .toFuture();
+    }
+
+    private static StatsServerException toStatsServerException(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            WebClientResponseException response = (WebClientResponseException) error;
+            return new StatsServerException(response.getStatusCode(), response.getMessage(), response);
+        }
+        return new StatsServerException(null, error.getMessage(), error);
+    }
+}
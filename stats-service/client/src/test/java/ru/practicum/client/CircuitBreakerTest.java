@@ -0,0 +1,181 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+    private static final int THRESHOLD = 3;
+    private static final long OPEN_MS = 50;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsWithoutCalling() {
+        CircuitBreaker breaker = breaker(60_000, 1_000);
+
+        failTimes(breaker, THRESHOLD);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.call(succeeding()))
+                .isInstanceOf(StatsServerException.class)
+                .hasMessageContaining("circuit breaker is open");
+        assertThat(calls.get()).isEqualTo(THRESHOLD);
+        assertThat(count("failure")).isEqualTo(THRESHOLD);
+        assertThat(count("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = breaker(60_000, 1_000);
+
+        failTimes(breaker, THRESHOLD - 1);
+        breaker.call(succeeding());
+        failTimes(breaker, THRESHOLD - 1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void clientErrorsDoNotCountAsFailures() {
+        CircuitBreaker breaker = breaker(60_000, 1_000);
+
+        failTimes(breaker, THRESHOLD, HttpStatus.BAD_REQUEST);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        failTimes(breaker, THRESHOLD, HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        CircuitBreaker breaker = breaker(60_000, 10);
+
+        for (int i = 0; i < THRESHOLD; i++) {
+            assertThat(breaker.call(() -> {
+                sleep(30);
+                return "late";
+            })).isEqualTo("late");
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void successfulProbeClosesTheBreaker() {
+        CircuitBreaker breaker = breaker(OPEN_MS, 1_000);
+        failTimes(breaker, THRESHOLD);
+
+        sleep(OPEN_MS + 20);
+        assertThat(breaker.call(() -> {
+            assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+            assertThatThrownBy(() -> breaker.call(succeeding())).isInstanceOf(StatsServerException.class);
+            return "probe";
+        })).isEqualTo("probe");
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.call(succeeding())).isEqualTo("result");
+    }
+
+    @Test
+    void failedProbeOpensTheBreakerAgain() {
+        CircuitBreaker breaker = breaker(OPEN_MS, 1_000);
+        failTimes(breaker, THRESHOLD);
+
+        sleep(OPEN_MS + 20);
+        failTimes(breaker, 1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.call(succeeding())).isInstanceOf(StatsServerException.class);
+        sleep(OPEN_MS + 20);
+        assertThat(breaker.call(succeeding())).isEqualTo("result");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void asyncCallsAreCountedAndRejectedTheSameWay() {
+        CircuitBreaker breaker = breaker(OPEN_MS, 1_000);
+
+        for (int i = 0; i < THRESHOLD; i++) {
+            CompletableFuture<String> future = breaker.callAsync(() -> {
+                calls.incrementAndGet();
+                return CompletableFuture.failedFuture(new StatsServerException("unreachable"));
+            });
+            assertThatThrownBy(future::join).hasCauseInstanceOf(StatsServerException.class);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        CompletableFuture<String> rejected = breaker.callAsync(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("result");
+        });
+        assertThatThrownBy(rejected::join).hasRootCauseMessage("Stats-server circuit breaker is open");
+        assertThat(calls.get()).isEqualTo(THRESHOLD);
+
+        sleep(OPEN_MS + 20);
+        CompletableFuture<String> probe = new CompletableFuture<>();
+        CompletableFuture<String> result = breaker.callAsync(() -> probe);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        probe.complete("probe");
+
+        assertThat(result.join()).isEqualTo("probe");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void disabledLetsEveryCallThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(false, THRESHOLD, 60_000, 1_000, meterRegistry);
+
+        failTimes(breaker, THRESHOLD * 2);
+
+        assertThat(breaker.call(succeeding())).isEqualTo("result");
+        assertThat(breaker.callAsync(() -> CompletableFuture.completedFuture("async")).join()).isEqualTo("async");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(calls.get()).isEqualTo(THRESHOLD * 2 + 1);
+    }
+
+    private CircuitBreaker breaker(long openMs, long slowCallMs) {
+        return new CircuitBreaker(true, THRESHOLD, openMs, slowCallMs, meterRegistry);
+    }
+
+    private Supplier<String> succeeding() {
+        return () -> {
+            calls.incrementAndGet();
+            return "result";
+        };
+    }
+
+    private void failTimes(CircuitBreaker breaker, int times) {
+        failTimes(breaker, times, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private void failTimes(CircuitBreaker breaker, int times, HttpStatus status) {
+        for (int i = 0; i < times; i++) {
+            assertThatThrownBy(() -> breaker.call(() -> {
+                calls.incrementAndGet();
+                throw new StatsServerException(status, status.getReasonPhrase(), null);
+            })).hasMessage(status.getReasonPhrase());
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("stats.client.circuit.calls", "result", result).count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
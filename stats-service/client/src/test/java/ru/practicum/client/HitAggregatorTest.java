@@ -0,0 +1,106 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class HitAggregatorTest {
+    private static final String APP = "ewm-main-service";
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+    private HitAggregator aggregator;
+
+    @AfterEach
+    void stop() {
+        aggregator.stop();
+    }
+
+    @Test
+    void firstHitIsSentAtOnceAndRepeatsAreCollapsedIntoOneWeightedRecord() {
+        aggregator = started(60_000, 100);
+
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED))).isTrue();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED.plusSeconds(1)))).isFalse();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED.plusSeconds(2)))).isFalse();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED.plusSeconds(3)))).isFalse();
+        assertThat(sent).isEmpty();
+
+        aggregator.stop();
+
+        assertThat(sent).extracting(EndpointHitDto::getUri, EndpointHitDto::getIp, EndpointHitDto::getCreated,
+                        EndpointHitDto::getHits)
+                .containsExactly(tuple("/events/1", "10.0.0.1", CREATED.plusSeconds(1), 3));
+        assertThat(meterRegistry.counter("stats.client.hits", "result", "collapsed").count()).isEqualTo(3);
+    }
+
+    @Test
+    void otherVisitorsAndUrisOpenBurstsOfTheirOwn() {
+        aggregator = started(60_000, 100);
+
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED))).isTrue();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.2", CREATED))).isTrue();
+        assertThat(aggregator.admit(hit("/events/2", "10.0.0.1", CREATED))).isTrue();
+        assertThat(aggregator.admit(new EndpointHitDto("other-service", "/events/1", "10.0.0.1", CREATED))).isTrue();
+
+        aggregator.stop();
+
+        // No burst had a repeat, so there is nothing left to send.
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void closedWindowIsSentAndTheNextHitOpensANewBurst() throws InterruptedException {
+        aggregator = started(50, 100);
+        aggregator.admit(hit("/events/1", "10.0.0.1", CREATED));
+        aggregator.admit(hit("/events/1", "10.0.0.1", CREATED.plusSeconds(1)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent.isEmpty()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+
+        assertThat(sent).extracting(EndpointHitDto::getHits).containsExactly(1);
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED.plusSeconds(2)))).isTrue();
+    }
+
+    @Test
+    void fullTableSendsNewVisitorsWithoutCollapsing() {
+        aggregator = started(60_000, 1);
+        aggregator.admit(hit("/events/1", "10.0.0.1", CREATED));
+
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.2", CREATED))).isTrue();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.2", CREATED))).isTrue();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED))).isFalse();
+    }
+
+    @Test
+    void disabledSendsEveryHit() {
+        aggregator = new HitAggregator(false, 60_000, 100, meterRegistry);
+        aggregator.start(sent::addAll);
+
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED))).isTrue();
+        assertThat(aggregator.admit(hit("/events/1", "10.0.0.1", CREATED))).isTrue();
+    }
+
+    private HitAggregator started(long windowMs, int maxEntries) {
+        HitAggregator started = new HitAggregator(true, windowMs, maxEntries, meterRegistry);
+        started.start(sent::addAll);
+        return started;
+    }
+
+    private static EndpointHitDto hit(String uri, String ip, LocalDateTime created) {
+        return new EndpointHitDto(APP, uri, ip, created);
+    }
+}
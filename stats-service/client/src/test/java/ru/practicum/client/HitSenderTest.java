@@ -0,0 +1,152 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSenderTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+    private HitSender sender;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        sender.stop();
+    }
+
+    @Test
+    void dropNewestKeepsTheQueuedHitsWhenFull() throws InterruptedException {
+        sender = sender(2, HitSender.OverflowPolicy.DROP_NEWEST, 5);
+
+        assertThat(sender.offer(hit(1))).isTrue();
+        assertThat(sender.offer(hit(2))).isTrue();
+        assertThat(sender.offer(hit(3))).isFalse();
+        assertThat(count("queued")).isEqualTo(2);
+        assertThat(count("dropped")).isEqualTo(1);
+
+        sender.start(sent::addAll);
+        sender.stop();
+
+        assertThat(sent).extracting(EndpointHitDto::getUri).containsExactly("/events/1", "/events/2");
+    }
+
+    @Test
+    void dropOldestMakesRoomForTheNewHit() throws InterruptedException {
+        sender = sender(2, HitSender.OverflowPolicy.DROP_OLDEST, 5);
+
+        assertThat(sender.offer(hit(1))).isTrue();
+        assertThat(sender.offer(hit(2))).isTrue();
+        assertThat(sender.offer(hit(3))).isTrue();
+        assertThat(count("queued")).isEqualTo(3);
+        assertThat(count("dropped")).isEqualTo(1);
+
+        sender.start(sent::addAll);
+        sender.stop();
+
+        assertThat(sent).extracting(EndpointHitDto::getUri).containsExactly("/events/2", "/events/3");
+    }
+
+    @Test
+    void failedBatchIsRetriedUntilItIsSent() throws InterruptedException {
+        sender = sender(10, HitSender.OverflowPolicy.DROP_NEWEST, 5);
+        AtomicInteger attempts = new AtomicInteger();
+        sender.start(failing(2, attempts));
+
+        sender.offer(hit(1));
+        sender.offer(hit(2));
+        await(() -> count("sent") == 2);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(sent).hasSize(2);
+        assertThat(count("dropped")).isZero();
+    }
+
+    @Test
+    void batchIsDroppedAfterTheLastAttempt() throws InterruptedException {
+        sender = sender(10, HitSender.OverflowPolicy.DROP_NEWEST, 3);
+        AtomicInteger attempts = new AtomicInteger();
+        sender.start(failing(Integer.MAX_VALUE, attempts));
+
+        sender.offer(hit(1));
+        await(() -> count("dropped") == 1);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(count("sent")).isZero();
+    }
+
+    @Test
+    void rejectedBatchIsDroppedWithoutRetries() throws InterruptedException {
+        sender = sender(10, HitSender.OverflowPolicy.DROP_NEWEST, 3);
+        AtomicInteger attempts = new AtomicInteger();
+        sender.start(batch -> {
+            attempts.incrementAndGet();
+            return false;
+        });
+
+        sender.offer(hit(1));
+        await(() -> count("dropped") == 1);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(count("sent")).isZero();
+    }
+
+    @Test
+    void hitsStillQueuedAtStopAreSent() throws InterruptedException {
+        sender = sender(100, HitSender.OverflowPolicy.DROP_NEWEST, 5);
+        for (int i = 0; i < 25; i++) {
+            sender.offer(hit(i));
+        }
+
+        sender.start(sent::addAll);
+        sender.stop();
+
+        assertThat(sent).hasSize(25);
+        assertThat(count("sent")).isEqualTo(25);
+        assertThat(meterRegistry.get("stats.client.hits.queue.size").gauge().value()).isZero();
+    }
+
+    private HitSender sender(int queueCapacity, HitSender.OverflowPolicy overflowPolicy, int maxAttempts) {
+        return new HitSender(true, queueCapacity, overflowPolicy, 10, maxAttempts, 1, 5, 5_000, meterRegistry);
+    }
+
+    /**
+     * Sender that throws on the first {@code failures} attempts and then takes every batch.
+     */
+    private Predicate<List<EndpointHitDto>> failing(int failures, AtomicInteger attempts) {
+        return batch -> {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new StatsServerException("unavailable");
+            }
+            return sent.addAll(batch);
+        };
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("stats.client.hits", "result", result).count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static EndpointHitDto hit(int eventId) {
+        return new EndpointHitDto("ewm-main-service", "/events/" + eventId, "10.0.0.1", CREATED);
+    }
+}
@@ -0,0 +1,234 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final String KEY = "key";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SingleFlight singleFlight = new SingleFlight(true, meterRegistry);
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> first = executor.submit(() -> singleFlight.execute(KEY, blockingCall(release, "result")));
+        awaitExecuted(1);
+        Future<Object> second = executor.submit(() -> singleFlight.execute(KEY, blockingCall(release, "other")));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get());
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failureReachesEveryCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> failing = () -> {
+            calls.incrementAndGet();
+            await(release);
+            throw new StatsServerException("failed");
+        };
+
+        Future<Object> first = executor.submit(() -> singleFlight.execute(KEY, failing));
+        awaitExecuted(1);
+        Future<Object> second = executor.submit(() -> singleFlight.execute(KEY, failing));
+        awaitCoalesced(1);
+        release.countDown();
+
+        for (Future<Object> future : List.of(first, second)) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(StatsServerException.class)
+                    .hasRootCauseMessage("failed");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void errorOfTheLeaderReachesTheWaitingCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> failing = () -> {
+            calls.incrementAndGet();
+            await(release);
+            throw new StackOverflowError("too deep");
+        };
+
+        Future<Object> first = executor.submit(() -> singleFlight.execute(KEY, failing));
+        awaitExecuted(1);
+        Future<Object> second = executor.submit(() -> singleFlight.execute(KEY, failing));
+        awaitCoalesced(1);
+        release.countDown();
+
+        for (Future<Object> future : List.of(first, second)) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(StackOverflowError.class);
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(singleFlight.execute(KEY, () -> "again")).isEqualTo("again");
+    }
+
+    @Test
+    void finishedCallIsNotReused() {
+        assertThat(singleFlight.execute(KEY, () -> calls.incrementAndGet())).isEqualTo(1);
+        assertThat(singleFlight.execute(KEY, () -> calls.incrementAndGet())).isEqualTo(2);
+        assertThatThrownBy(() -> singleFlight.execute(KEY, () -> {
+            throw new StatsServerException("failed");
+        })).isInstanceOf(StatsServerException.class);
+        assertThat(singleFlight.execute(KEY, () -> calls.incrementAndGet())).isEqualTo(3);
+    }
+
+    @Test
+    void differentKeysDoNotShare() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> first = executor.submit(() -> singleFlight.execute("a", blockingCall(release, "a")));
+        Future<Object> second = executor.submit(() -> singleFlight.execute("b", blockingCall(release, "b")));
+        awaitExecuted(2);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledRunsEveryCall() throws Exception {
+        SingleFlight disabled = new SingleFlight(false, meterRegistry);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> call = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "result";
+        };
+
+        Future<Object> first = executor.submit(() -> disabled.execute(KEY, call));
+        Future<Object> second = executor.submit(() -> disabled.execute(KEY, call));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void asyncCallersShareOneCall() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        Supplier<CompletableFuture<String>> call = () -> {
+            calls.incrementAndGet();
+            return response;
+        };
+
+        CompletableFuture<String> first = singleFlight.executeAsync(KEY, call);
+        CompletableFuture<String> second = singleFlight.executeAsync(KEY, call);
+        response.complete("result");
+
+        assertThat(first.join()).isEqualTo("result");
+        assertThat(second.join()).isEqualTo("result");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(singleFlight.executeAsync(KEY, () -> CompletableFuture.completedFuture("again")).join())
+                .isEqualTo("again");
+    }
+
+    @Test
+    void asyncCallerCancellingItsFutureLeavesTheOthers() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync(KEY, () -> response);
+        CompletableFuture<String> second = singleFlight.executeAsync(KEY, () -> response);
+        CompletableFuture<String> third = singleFlight.executeAsync(KEY, () -> response);
+        first.cancel(true);
+        second.cancel(true);
+        response.complete("result");
+
+        assertThat(third.join()).isEqualTo("result");
+        assertThat(response).isNotCancelled();
+    }
+
+    @Test
+    void asyncFailureReachesEveryCaller() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync(KEY, () -> response);
+        CompletableFuture<String> second = singleFlight.executeAsync(KEY, () -> response);
+        response.completeExceptionally(new StatsServerException("failed"));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(StatsServerException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(StatsServerException.class);
+        assertThatThrownBy(singleFlight.executeAsync(KEY, () -> {
+            throw new StatsServerException("not started");
+        })::join).hasRootCauseMessage("not started");
+    }
+
+    @Test
+    void asyncCallThrowingAnErrorIsNotLeftInFlight() {
+        CompletableFuture<String> failed = singleFlight.executeAsync(KEY, () -> {
+            throw new StackOverflowError("too deep");
+        });
+
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(StackOverflowError.class);
+        assertThat(singleFlight.executeAsync(KEY, () -> CompletableFuture.completedFuture("again")).join())
+                .isEqualTo("again");
+    }
+
+    private Supplier<Object> blockingCall(CountDownLatch release, Object result) {
+        return () -> {
+            calls.incrementAndGet();
+            await(release);
+            return result;
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitExecuted(int count) throws InterruptedException {
+        awaitCount("executed", count);
+    }
+
+    private void awaitCoalesced(int count) throws InterruptedException {
+        awaitCount("coalesced", count);
+    }
+
+    private void awaitCount(String result, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("stats.client.single-flight.calls", "result", result).count() < count) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Saturates {@link StatsClient} against a stub stats-server that answers only after {@link #STUB_DELAY_MS}:
+ * every call must come back within about the per-call deadline, and once the circuit breaker opens the client
+ * must keep answering at full speed instead of queueing callers behind the slow server.
+ */
+class StatsClientLoadTest {
+    private static final long STUB_DELAY_MS = 5_000;
+    private static final long DEADLINE_MS = 300;
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int POOL_TIMEOUT_MS = 100;
+    private static final int CALLERS = 32;
+    private static final long RUN_MS = 3_000;
+    // Deadline plus the pool wait plus scheduling slack; far below the stub delay.
+    private static final long MAX_LATENCY_MS = 1_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger received = new AtomicInteger();
+    private ExecutorService stubExecutor;
+    private HttpServer stub;
+    private StatsConnectionPool connectionPool;
+    private HitSender hitSender;
+    private HitAggregator hitAggregator;
+    private ViewCountCache viewCountCache;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stubExecutor = Executors.newCachedThreadPool();
+        stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.createContext("/", exchange -> {
+            received.incrementAndGet();
+            try {
+                Thread.sleep(STUB_DELAY_MS);
+                byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        stub.setExecutor(stubExecutor);
+        stub.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        hitAggregator.stop();
+        hitSender.stop();
+        viewCountCache.stop();
+        connectionPool.close();
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void deadlineBoundsEveryCallWithoutCircuitBreaker() throws Exception {
+        StatsClient client = client(false);
+
+        Load load = saturate(client);
+
+        assertThat(load.failures.get()).isZero();
+        assertThat(load.maxLatencyNanos.get()).isLessThan(TimeUnit.MILLISECONDS.toNanos(MAX_LATENCY_MS));
+        // Each caller is held at most about a deadline per call, never the stub delay.
+        assertThat(load.calls.get()).isGreaterThanOrEqualTo(CALLERS * RUN_MS / MAX_LATENCY_MS);
+    }
+
+    @Test
+    void openCircuitAnswersAtFullSpeedAndSparesTheServer() throws Exception {
+        StatsClient client = client(true);
+
+        Load load = saturate(client);
+
+        assertThat(load.failures.get()).isZero();
+        assertThat(load.maxLatencyNanos.get()).isLessThan(TimeUnit.MILLISECONDS.toNanos(MAX_LATENCY_MS));
+        assertThat(load.calls.get()).isGreaterThan(10_000);
+        // Only the calls in flight before the breaker opened reached the server.
+        assertThat(received.get()).isLessThanOrEqualTo(2 * MAX_CONNECTIONS);
+    }
+
+    private StatsClient client(boolean circuitBreakerEnabled) {
+        connectionPool = new StatsConnectionPool(MAX_CONNECTIONS, MAX_CONNECTIONS, 1_000, POOL_TIMEOUT_MS,
+                (int) STUB_DELAY_MS * 2, 30_000, DEADLINE_MS, meterRegistry);
+        hitSender = new HitSender(false, 100, HitSender.OverflowPolicy.DROP_NEWEST, 10, 1, 100, 100, 100,
+                meterRegistry);
+        hitAggregator = new HitAggregator(false, 1_000, 100, meterRegistry);
+        viewCountCache = new ViewCountCache(false, 100, 30_000, 20_000, 1_000, meterRegistry);
+        return new StatsClient("http://localhost:" + stub.getAddress().getPort(), 50, new RestTemplateBuilder(),
+                connectionPool, hitSender, hitAggregator, viewCountCache, new SingleFlight(true, meterRegistry),
+                new CircuitBreaker(circuitBreakerEnabled, 5, 60_000, 1_000, meterRegistry));
+    }
+
+    /**
+     * Runs {@link #CALLERS} threads that log a hit and read stats in a loop for {@link #RUN_MS}.
+     */
+    private Load saturate(StatsClient client) throws Exception {
+        Load load = new Load();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            String ip = "10.0.0." + i;
+            futures.add(callers.submit(() -> {
+                while (System.nanoTime() < until) {
+                    load.measure(() -> client.addStat(new EndpointHitDto("load-test", "/events/1", ip,
+                            LocalDateTime.now())).getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE);
+                    load.measure(() -> client.getStat(LocalDateTime.now().minusDays(1), LocalDateTime.now(),
+                            List.of("/events/1"), false).isEmpty());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(RUN_MS + STUB_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        callers.shutdown();
+        return load;
+    }
+
+    private static class Load {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        /**
+         * Times a call that must report the unavailable server by its answer, not by throwing.
+         */
+        void measure(BooleanSupplier call) {
+            long started = System.nanoTime();
+            boolean degraded;
+            try {
+                degraded = call.getAsBoolean();
+            } catch (RuntimeException e) {
+                degraded = false;
+            }
+            maxLatencyNanos.accumulateAndGet(System.nanoTime() - started, Math::max);
+            calls.incrementAndGet();
+            if (!degraded) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ru.practicum.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class StatsClientTest {
+    private static final long STUB_DELAY_MS = 500;
+    private static final String STATS = "[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":5}]";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger received = new AtomicInteger();
+    private volatile int stubStatus = 200;
+    private ExecutorService stubExecutor;
+    private HttpServer stub;
+    private StatsConnectionPool connectionPool;
+    private HitSender hitSender;
+    private HitAggregator hitAggregator;
+    private ViewCountCache viewCountCache;
+    private StatsClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        stubExecutor = Executors.newCachedThreadPool();
+        stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        stub.createContext("/", exchange -> {
+            received.incrementAndGet();
+            try {
+                // Read, so the connection can be reused after large bodies.
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(STUB_DELAY_MS);
+                byte[] body = STATS.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(stubStatus, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        stub.setExecutor(stubExecutor);
+        stub.start();
+
+        connectionPool = new StatsConnectionPool(4, 4, 1_000, 1_000, 5_000, 30_000, 5_000, meterRegistry);
+        hitSender = new HitSender(false, 100, HitSender.OverflowPolicy.DROP_NEWEST, 10, 1, 100, 100, 100,
+                meterRegistry);
+        hitAggregator = new HitAggregator(false, 1_000, 100, meterRegistry);
+        viewCountCache = spy(new ViewCountCache(false, 100, 30_000, 20_000, 1_000, meterRegistry));
+        client = new StatsClient("http://localhost:" + stub.getAddress().getPort(), 50, new RestTemplateBuilder(),
+                connectionPool, hitSender, hitAggregator, viewCountCache, new SingleFlight(true, meterRegistry),
+                new CircuitBreaker(false, 5, 60_000, 1_000, meterRegistry));
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        hitAggregator.stop();
+        hitSender.stop();
+        viewCountCache.stop();
+        connectionPool.close();
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void coalescedCallersGetTheirOwnCopies() throws Exception {
+        LocalDateTime end = LocalDateTime.of(2024, 1, 1, 0, 0);
+        CountDownLatch ready = new CountDownLatch(2);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        List<Future<List<ViewStatsDto>>> futures = callers.invokeAll(List.of(
+                () -> {
+                    ready.countDown();
+                    ready.await();
+                    return client.getStat(end.minusDays(1), end, List.of("/events/1"), false);
+                },
+                () -> {
+                    ready.countDown();
+                    ready.await();
+                    return client.getStat(end.minusDays(1), end, List.of("/events/1"), false);
+                }), 5, TimeUnit.SECONDS);
+        callers.shutdown();
+        List<ViewStatsDto> first = futures.get(0).get();
+        List<ViewStatsDto> second = futures.get(1).get();
+
+        assertThat(received.get()).isEqualTo(1);
+        assertThat(first).hasSize(1);
+        assertThat(second).hasSize(1);
+        assertThat(first.get(0)).isNotSameAs(second.get(0));
+        first.get(0).setHits(0L);
+        assertThat(second.get(0).getHits()).isEqualTo(5L);
+        assertThat(second.get(0).getUri()).isEqualTo("/events/1");
+    }
+
+    @Test
+    void rejectedHitsDoNotRaiseCachedCounts() {
+        stubStatus = 400;
+        EndpointHitDto hit = new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", LocalDateTime.now());
+
+        assertThat(client.addStat(hit).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(client.sendBatch(List.of(hit))).isFalse();
+
+        verify(viewCountCache, never()).recordHit(any(EndpointHitDto.class));
+    }
+
+    @Test
+    void failedBatchesAreAnsweredLikeFailedHits() throws IOException {
+        stubStatus = 500;
+        EndpointHitDto hit = new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", LocalDateTime.now());
+
+        assertThat(client.addStats(List.of(hit)).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThatThrownBy(() -> client.sendBatch(List.of(hit))).isInstanceOf(StatsServerException.class);
+
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        StatsClient unreachable = new StatsClient("http://localhost:" + closedPort, 50, new RestTemplateBuilder(),
+                connectionPool, hitSender, hitAggregator, viewCountCache, new SingleFlight(true, meterRegistry),
+                new CircuitBreaker(false, 5, 60_000, 1_000, meterRegistry));
+        assertThat(unreachable.addStats(List.of(hit)).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThatThrownBy(() -> unreachable.sendBatch(List.of(hit)))
+                .isInstanceOf(StatsServerException.class)
+                .satisfies(e -> assertThat(((StatsServerException) e).getStatus()).isNull());
+
+        verify(viewCountCache, never()).recordHit(any(EndpointHitDto.class));
+    }
+
+    @Test
+    void openBreakerRejectsBatchesWithoutPosting() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 1, 60_000, 1_000, meterRegistry);
+        StatsClient guarded = new StatsClient("http://localhost:" + stub.getAddress().getPort(), 50,
+                new RestTemplateBuilder(), connectionPool, hitSender, hitAggregator, viewCountCache,
+                new SingleFlight(true, meterRegistry), breaker);
+        EndpointHitDto hit = new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", LocalDateTime.now());
+        stubStatus = 503;
+
+        assertThat(guarded.addStats(List.of(hit)).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(guarded.addStats(List.of(hit)).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertThat(received.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failedChunkOfCollapsedHitsDoesNotStopTheNextOnes() {
+        stubStatus = 500;
+        HitAggregator aggregator = new HitAggregator(true, 60_000, 10_000, meterRegistry);
+        new StatsClient("http://localhost:" + stub.getAddress().getPort(), 50, new RestTemplateBuilder(),
+                connectionPool, hitSender, aggregator, viewCountCache, new SingleFlight(true, meterRegistry),
+                new CircuitBreaker(false, 5, 60_000, 1_000, meterRegistry));
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i <= StatsClient.MAX_HIT_BATCH; i++) {
+            EndpointHitDto hit = new EndpointHitDto("ewm-main-service", "/events/1", "10.0." + i / 256 + "." + i % 256,
+                    now);
+            aggregator.admit(hit);
+            aggregator.admit(hit);
+        }
+
+        aggregator.stop();
+
+        assertThat(received.get()).isEqualTo(2);
+    }
+
+    @Test
+    void acceptedHitsRaiseCachedCounts() {
+        EndpointHitDto hit = new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", LocalDateTime.now());
+
+        client.addStat(hit);
+
+        verify(viewCountCache).recordHit(hit);
+    }
+}
@@ -14,5 +14,12 @@ public class EndpointHitDto {
     private String uri;
     private String ip;
     private LocalDateTime created;
+    /**
+     * Identical hits this record stands for, 1 when absent; set by clients that collapse repeated hits.
+     */
+    private Integer hits;
 
+    public EndpointHitDto(String app, String uri, String ip, LocalDateTime created) {
+        this(app, uri, ip, created, null);
+    }
 }
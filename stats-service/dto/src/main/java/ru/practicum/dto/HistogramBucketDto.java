@@ -0,0 +1,16 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistogramBucketDto {
+    private LocalDateTime start;
+    private Long hits;
+    private Long uniqueHits;
+}
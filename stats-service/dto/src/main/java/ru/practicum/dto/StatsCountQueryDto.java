@@ -0,0 +1,23 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /stats/counts}: hits of {@code uriPrefix + id} for every id, counted for one app
+ * (or for all apps when {@code app} is null). The answer is a plain array of counts in the order of {@code ids}.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsCountQueryDto {
+    private String start;
+    private String end;
+    private String app;
+    private String uriPrefix;
+    private List<Long> ids;
+    private Boolean unique;
+}
@@ -0,0 +1,21 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Answer of {@code GET /stats/delta}: current counts of every (app, uri) changed after the requested watermark
+ * and up to {@code watermark}, which is what the next request passes as {@code since}. Counts are absolute,
+ * so applying a page twice is harmless. With {@code more} set the page was cut and the next one follows at once.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsDeltaDto {
+    private Long watermark;
+    private Boolean more;
+    private List<UriCountDto> counts;
+}
@@ -0,0 +1,25 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /stats/query}: the same query as {@code GET /stats} without the URL length limits.
+ * Uris can be listed as is or, more compactly, as numeric ids appended to {@code uriPrefix}
+ * ({@code /events/} with ids 1 and 2 stands for {@code /events/1} and {@code /events/2}); both lists may be combined.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsQueryDto {
+    private String start;
+    private String end;
+    private List<String> uris;
+    private String uriPrefix;
+    private List<Long> ids;
+    private Boolean unique;
+    private Boolean approximate;
+}
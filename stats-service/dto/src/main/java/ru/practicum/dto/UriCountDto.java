@@ -0,0 +1,18 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+/**
+ * All-time hit and unique-visitor counts of one (app, uri), as they stand after the changes up to a watermark.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UriCountDto {
+    private String app;
+    private String uri;
+    private Long hits;
+    private Long uniqueHits;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WindowStatsDto {
+    private String app;
+    private String uri;
+    /**
+     * Hits per requested window, keyed by the window as it was requested (for example {@code 24h} or {@code all}).
+     */
+    private Map<String, Long> hits;
+}
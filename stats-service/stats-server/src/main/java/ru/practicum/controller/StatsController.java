@@ -1,14 +1,25 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HistogramBucketDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.StatsCountQueryDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.WindowStatsDto;
 import ru.practicum.service.StatsService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -16,6 +27,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     public ResponseEntity<EndpointHitDto> save(@RequestBody EndpointHitDto endpointHitDto) {
@@ -23,14 +35,119 @@ public class StatsController {
         return ResponseEntity.status(HttpStatus.CREATED).body(statsService.save(endpointHitDto));
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void saveAll(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        log.info("Batch of {} hits logged", endpointHitDtos.size());
+        statsService.saveAll(endpointHitDtos);
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<List<ViewStatsDto>> getStatistic(
             @RequestParam(name = "start") String start,
             @RequestParam(name = "end") String end,
             @RequestParam(name = "uris", defaultValue = "") List<String> uris,
+            @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+            @RequestParam(name = "approximate", defaultValue = "false") Boolean approximate) {
+
+        log.info("Fetching stats: start date: {}, end date: {}, URIs: {}, unique: {}, approximate: {}",
+                start, end, uris, unique, approximate);
+        return ResponseEntity.ok(statsService.getStatistics(start, end, uris, unique, approximate));
+    }
+
+    @PostMapping("/stats/query")
+    public ResponseEntity<List<ViewStatsDto>> queryStatistic(@RequestBody StatsQueryDto query) {
+        log.info("Fetching stats by query: start date: {}, end date: {}, {} URIs, {} ids under {}, unique: {}",
+                query.getStart(), query.getEnd(), query.getUris() == null ? 0 : query.getUris().size(),
+                query.getIds() == null ? 0 : query.getIds().size(), query.getUriPrefix(), query.getUnique());
+        return ResponseEntity.ok(statsService.getStatistics(query));
+    }
+
+    @PostMapping("/stats/counts")
+    public ResponseEntity<long[]> countStatistic(@RequestBody StatsCountQueryDto query) {
+        log.info("Fetching hit counts: start date: {}, end date: {}, app: {}, {} ids under {}, unique: {}",
+                query.getStart(), query.getEnd(), query.getApp(), query.getIds() == null ? 0 : query.getIds().size(),
+                query.getUriPrefix(), query.getUnique());
+        return ResponseEntity.ok(statsService.getHitCounts(query));
+    }
+
+    @GetMapping("/stats/top")
+    public ResponseEntity<List<ViewStatsDto>> getTopStatistic(
+            @RequestParam(name = "start") String start,
+            @RequestParam(name = "end") String end,
+            @RequestParam(name = "limit", defaultValue = "10") Integer limit,
+            @RequestParam(name = "prefix", required = false) String prefix,
             @RequestParam(name = "unique", defaultValue = "false") Boolean unique) {
 
-        log.info("Fetching stats: start date: {}, end date: {}, URIs: {}, unique: {}", start, end, uris, unique);
-        return ResponseEntity.ok(statsService.getStatistics(start, end, uris, unique));
+        log.info("Fetching top stats: start date: {}, end date: {}, limit: {}, prefix: {}, unique: {}",
+                start, end, limit, prefix, unique);
+        return ResponseEntity.ok(statsService.getTopStatistics(start, end, limit, prefix, unique));
+    }
+
+    @GetMapping("/stats/histogram")
+    public ResponseEntity<List<HistogramBucketDto>> getHistogram(
+            @RequestParam(name = "start") String start,
+            @RequestParam(name = "end") String end,
+            @RequestParam(name = "uri") String uri,
+            @RequestParam(name = "bucket", defaultValue = "hour") String bucket,
+            @RequestParam(name = "unique", defaultValue = "false") Boolean unique) {
+
+        log.info("Fetching histogram: start date: {}, end date: {}, URI: {}, bucket: {}, unique: {}",
+                start, end, uri, bucket, unique);
+        return ResponseEntity.ok(statsService.getHistogram(start, end, uri, bucket, unique));
+    }
+
+    @GetMapping("/stats/windows")
+    public ResponseEntity<List<WindowStatsDto>> getWindowStatistic(
+            @RequestParam(name = "end", required = false) String end,
+            @RequestParam(name = "windows") List<String> windows,
+            @RequestParam(name = "uris", defaultValue = "") List<String> uris,
+            @RequestParam(name = "unique", defaultValue = "false") Boolean unique) {
+
+        log.info("Fetching window stats: end date: {}, windows: {}, URIs: {}, unique: {}", end, windows, uris, unique);
+        return ResponseEntity.ok(statsService.getWindowStatistics(end, windows, uris, unique));
+    }
+
+    /**
+     * Incremental feed of all-time counts for consumers that keep their own copy: poll with the last
+     * {@code watermark} received as {@code since}, starting from 0.
+     */
+    @GetMapping("/stats/delta")
+    public ResponseEntity<StatsDeltaDto> getDelta(
+            @RequestParam(name = "since", defaultValue = "0") Long since,
+            @RequestParam(name = "app", required = false) String app,
+            @RequestParam(name = "prefix", required = false) String prefix,
+            @RequestParam(name = "limit", defaultValue = "1000") Integer limit) {
+
+        log.debug("Fetching counter changes: since: {}, app: {}, prefix: {}, limit: {}", since, app, prefix, limit);
+        return ResponseEntity.ok(statsService.getDelta(since, app, prefix, limit));
+    }
+
+    /**
+     * Same statistics written as a JSON array while rows come from the database cursor, so memory stays flat
+     * however many uris match. Always counted exactly over raw hits.
+     */
+    @GetMapping(value = "/stats", params = "stream=true")
+    public void streamStatistic(
+            @RequestParam(name = "start") String start,
+            @RequestParam(name = "end") String end,
+            @RequestParam(name = "uris", defaultValue = "") List<String> uris,
+            @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+            HttpServletResponse response) throws IOException {
+
+        log.info("Streaming stats: start date: {}, end date: {}, URIs: {}, unique: {}", start, end, uris, unique);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // Not closed on failure: while nothing has been flushed yet, ErrorHandler can still send a clean error body.
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.writeStartArray();
+        statsService.streamStatistics(start, end, uris, unique, stats -> {
+            try {
+                generator.writeObject(stats);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.writeEndArray();
+        generator.close();
     }
 }
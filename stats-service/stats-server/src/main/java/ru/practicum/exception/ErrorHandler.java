@@ -27,4 +27,28 @@ public class ErrorHandler {
                 HttpStatus.BAD_REQUEST, exception.getMessage());
         return Map.of("Error", exception.getMessage());
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> invalidIpAddressException(final InvalidIpAddressException exception) {
+        log.warn("Error! InvalidIpAddressException, server status: '{}' text message: '{}'",
+                HttpStatus.BAD_REQUEST, exception.getMessage());
+        return Map.of("Error", exception.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> invalidRequestParameterException(final InvalidRequestParameterException exception) {
+        log.warn("Error! InvalidRequestParameterException, server status: '{}' text message: '{}'",
+                HttpStatus.BAD_REQUEST, exception.getMessage());
+        return Map.of("Error", exception.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> ingestionOverloadedException(final IngestionOverloadedException exception) {
+        log.warn("Error! IngestionOverloadedException, server status: '{}' text message: '{}'",
+                HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        return Map.of("Error", exception.getMessage());
+    }
 }
@@ -1,15 +1,43 @@
 package ru.practicum.mapper;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HistogramBucketDto;
+import ru.practicum.dto.UriCountDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.WindowStatsDto;
+import ru.practicum.exception.InvalidIpAddressException;
+import ru.practicum.exception.InvalidRequestParameterException;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.model.HistogramBucket;
+import ru.practicum.model.UriCounterChange;
 import ru.practicum.model.ViewStats;
+import ru.practicum.model.WindowStats;
+import ru.practicum.service.HitDictionary;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
+@RequiredArgsConstructor
 public class EndpointHitMapper {
+    private static final Pattern IPV4 = Pattern.compile("(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+    // Lengths of the STATS_APP and STATS_URI name columns.
+    private static final int MAX_APP_LENGTH = 256;
+    private static final int MAX_URI_LENGTH = 512;
+
+    private final HitDictionary hitDictionary;
 
     public EndpointHit toEndpointHit(EndpointHitDto endpointHitDto) {
         if (endpointHitDto == null) {
@@ -18,9 +46,10 @@ public class EndpointHitMapper {
 
         EndpointHit endpointHit = new EndpointHit();
 
-        endpointHit.setApp(endpointHitDto.getApp());
-        endpointHit.setUri(endpointHitDto.getUri());
-        endpointHit.setIp(endpointHitDto.getIp());
+        // Everything is checked before interning, so that a rejected hit adds no names to the dictionary.
+        String app = requireName("app", endpointHitDto.getApp(), MAX_APP_LENGTH);
+        String uri = requireName("uri", endpointHitDto.getUri(), MAX_URI_LENGTH);
+        endpointHit.setIp(toAddress(endpointHitDto.getIp()));
 
         if (endpointHitDto.getCreated() != null) {
             endpointHit.setCreated(endpointHitDto.getCreated());
@@ -28,6 +57,17 @@ public class EndpointHitMapper {
             endpointHit.setCreated(LocalDateTime.now());
         }
 
+        if (endpointHitDto.getHits() == null) {
+            endpointHit.setHits(1);
+        } else if (endpointHitDto.getHits() > 0) {
+            endpointHit.setHits(endpointHitDto.getHits());
+        } else {
+            throw new InvalidRequestParameterException("Hits of a record must be positive: " + endpointHitDto.getHits());
+        }
+
+        endpointHit.setAppId(hitDictionary.appId(app));
+        endpointHit.setUriId(hitDictionary.uriId(uri));
+
         return endpointHit;
     }
 
@@ -38,13 +78,14 @@ public class EndpointHitMapper {
 
         EndpointHitDto endpointHitDto = new EndpointHitDto();
 
-        endpointHitDto.setApp(endpointHit.getApp());
-        endpointHitDto.setUri(endpointHit.getUri());
-        endpointHitDto.setIp(endpointHit.getIp());
+        endpointHitDto.setApp(hitDictionary.appName(endpointHit.getAppId()));
+        endpointHitDto.setUri(hitDictionary.uriName(endpointHit.getUriId()));
+        endpointHitDto.setIp(toHostAddress(endpointHit.getIp()));
 
         if (endpointHit.getCreated() != null) {
             endpointHitDto.setCreated(endpointHit.getCreated());
         }
+        endpointHitDto.setHits(endpointHit.getHits());
 
         return endpointHitDto;
     }
@@ -56,10 +97,124 @@ public class EndpointHitMapper {
 
         ViewStatsDto viewStatsDto = new ViewStatsDto();
 
-        viewStatsDto.setApp(viewStats.getApp());
-        viewStatsDto.setUri(viewStats.getUri());
+        viewStatsDto.setApp(hitDictionary.appName(viewStats.getAppId()));
+        viewStatsDto.setUri(hitDictionary.uriName(viewStats.getUriId()));
         viewStatsDto.setHits(viewStats.getHits());
 
         return viewStatsDto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Same as {@link #toViewStatsDto} for many rows, looking up the names missing from the dictionary caches
+     * in one query per table instead of one per row.
+     */
+    public List<ViewStatsDto> toViewStatsDtos(List<ViewStats> viewStats) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (ViewStats stats : viewStats) {
+            appIds.add(stats.getAppId());
+            uriIds.add(stats.getUriId());
+        }
+        Map<Integer, String> apps = hitDictionary.appNames(appIds);
+        Map<Integer, String> uris = hitDictionary.uriNames(uriIds);
+
+        List<ViewStatsDto> viewStatsDtos = new ArrayList<>(viewStats.size());
+        for (ViewStats stats : viewStats) {
+            viewStatsDtos.add(new ViewStatsDto(apps.get(stats.getAppId()), uris.get(stats.getUriId()), stats.getHits()));
+        }
+        return viewStatsDtos;
+    }
+
+    public UriCountDto toUriCountDto(UriCounterChange change) {
+        if (change == null) {
+            return null;
+        }
+
+        UriCountDto uriCountDto = new UriCountDto();
+
+        uriCountDto.setApp(hitDictionary.appName(change.getAppId()));
+        uriCountDto.setUri(hitDictionary.uriName(change.getUriId()));
+        uriCountDto.setHits(change.getHits());
+        uriCountDto.setUniqueHits(change.getUniqueHits());
+
+        return uriCountDto;
+    }
+
+    public HistogramBucketDto toHistogramBucketDto(HistogramBucket histogramBucket, boolean unique) {
+        if (histogramBucket == null) {
+            return null;
+        }
+
+        HistogramBucketDto histogramBucketDto = new HistogramBucketDto();
+
+        histogramBucketDto.setStart(histogramBucket.getStart());
+        histogramBucketDto.setHits(histogramBucket.getHits());
+        if (unique) {
+            histogramBucketDto.setUniqueHits(histogramBucket.getUniqueHits());
+        }
+
+        return histogramBucketDto;
+    }
+
+    public WindowStatsDto toWindowStatsDto(WindowStats windowStats, List<String> windows) {
+        if (windowStats == null) {
+            return null;
+        }
+
+        WindowStatsDto windowStatsDto = new WindowStatsDto();
+
+        windowStatsDto.setApp(hitDictionary.appName(windowStats.getAppId()));
+        windowStatsDto.setUri(hitDictionary.uriName(windowStats.getUriId()));
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (int i = 0; i < windows.size(); i++) {
+            hits.put(windows.get(i), windowStats.getHits()[i]);
+        }
+        windowStatsDto.setHits(hits);
+
+        return windowStatsDto;
+    }
+
+    private static String requireName(String field, String name, int maxLength) {
+        if (name == null || name.isBlank()) {
+            throw new InvalidRequestParameterException("Hit " + field + " must not be blank");
+        }
+        if (name.length() > maxLength) {
+            throw new InvalidRequestParameterException("Hit " + field + " is longer than " + maxLength + " characters");
+        }
+        return name;
+    }
+
+    // Only literal addresses are accepted: InetAddress would otherwise resolve host names through DNS.
+    private static byte[] toAddress(String ip) {
+        if (ip != null) {
+            Matcher ipv4 = IPV4.matcher(ip);
+            if (ipv4.matches()) {
+                byte[] address = new byte[4];
+                for (int i = 0; i < address.length; i++) {
+                    int octet = Integer.parseInt(ipv4.group(i + 1));
+                    if (octet > 255) {
+                        throw new InvalidIpAddressException("Invalid ip address: " + ip);
+                    }
+                    address[i] = (byte) octet;
+                }
+                return address;
+            }
+            if (IPV6.matcher(ip).matches()) {
+                try {
+                    return InetAddress.getByName(ip).getAddress();
+                } catch (UnknownHostException e) {
+                    throw new InvalidIpAddressException("Invalid ip address: " + ip);
+                }
+            }
+        }
+        throw new InvalidIpAddressException("Invalid ip address: " + ip);
+    }
+
+    private static String toHostAddress(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Stored ip address of " + address.length + " bytes", e);
+        }
+    }
+}
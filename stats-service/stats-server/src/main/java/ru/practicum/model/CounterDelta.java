@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of the counter change feed: the changes up to {@code watermark}, and whether more follow.
+ */
+@Getter
+@AllArgsConstructor
+public class CounterDelta {
+    private long watermark;
+    private boolean more;
+    private List<UriCounterChange> changes;
+}
@@ -0,0 +1,46 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Statistics answered from all-time counters, plus the (app, uri) pairs whose hits are not entirely
+ * inside the requested range and therefore still have to be counted over raw data.
+ */
+@Getter
+public class CounterLookup {
+    private final List<ViewStats> covered = new ArrayList<>();
+    private final Set<Integer> uncoveredUris = new LinkedHashSet<>();
+    private final Set<List<Integer>> uncoveredPairs = new HashSet<>();
+
+    public void addCovered(ViewStats stats) {
+        covered.add(stats);
+    }
+
+    public void addUncovered(int appId, int uriId) {
+        uncoveredUris.add(uriId);
+        uncoveredPairs.add(List.of(appId, uriId));
+    }
+
+    public boolean isComplete() {
+        return uncoveredUris.isEmpty();
+    }
+
+    /**
+     * Joins the counter answers with the fallback computed for {@link #getUncoveredUris()}, sorted by hits descending.
+     */
+    public List<ViewStats> complete(List<ViewStats> fallback) {
+        return Stream.concat(covered.stream(),
+                        fallback.stream().filter(stats -> uncoveredPairs.contains(List.of(stats.getAppId(), stats.getUriId()))))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+}
@@ -20,17 +20,26 @@ public class EndpointHit {
     private Long id;
 
 
-    @Column(length = 256, nullable = false)
-    private String app;
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
 
-    @Column(length = 512, nullable = false)
-    private String uri;
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
 
-    @Column(length = 64, nullable = false)
-    private String ip;
+    /**
+     * Raw IPv4 or IPv6 address: 4 or 16 bytes.
+     */
+    @Column(length = 16, nullable = false)
+    private byte[] ip;
 
     private LocalDateTime created;
 
+    /**
+     * Identical hits of one visitor the row stands for; raw counts sum it, unique counts ignore it.
+     */
+    @Column(nullable = false)
+    private Integer hits;
+
     public LocalDateTime getCreated() {
         return created;
     }
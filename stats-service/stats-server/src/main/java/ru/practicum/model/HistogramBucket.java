@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hits of one uri within one aligned bucket; {@code uniqueHits} is null when it was not asked for.
+ */
+@Getter
+@AllArgsConstructor
+public class HistogramBucket {
+    private LocalDateTime start;
+    private long hits;
+    private Long uniqueHits;
+}
@@ -0,0 +1,49 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits [from, to) into whole buckets, coarsest granularity first, plus the ragged edges
+ * that no bucket of the finest granularity fits into and that have to be read from raw hits.
+ */
+@Getter
+public class RangeCover {
+    private final List<RollupSegment> segments = new ArrayList<>();
+    private final List<TimeRange> rawRanges = new ArrayList<>();
+
+    private RangeCover() {
+    }
+
+    /**
+     * Builds the cover; {@code levels} must be ordered from the coarsest granularity to the finest.
+     */
+    public static RangeCover of(LocalDateTime from, LocalDateTime to, List<RollupGranularity> levels) {
+        RangeCover cover = new RangeCover();
+        cover.add(from, to, levels, 0);
+        return cover;
+    }
+
+    private void add(LocalDateTime from, LocalDateTime to, List<RollupGranularity> levels, int level) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == levels.size()) {
+            rawRanges.add(new TimeRange(from, to));
+            return;
+        }
+        RollupGranularity granularity = levels.get(level);
+        LocalDateTime first = granularity.ceil(from);
+        LocalDateTime last = granularity.floor(to);
+        if (!first.isBefore(last)) {
+            add(from, to, levels, level + 1);
+            return;
+        }
+        segments.add(new RollupSegment(granularity, first, last));
+        add(from, first, levels, level + 1);
+        add(last, to, levels, level + 1);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Value
+public class RollupKey {
+    /**
+     * Order in which batches touch stored buckets, so concurrent writers lock rows in the same sequence.
+     */
+    public static final Comparator<RollupKey> STORAGE_ORDER = Comparator
+            .comparing(RollupKey::getGranularity)
+            .thenComparing(RollupKey::getBucketStart)
+            .thenComparingInt(RollupKey::getAppId)
+            .thenComparingInt(RollupKey::getUriId);
+
+    RollupGranularity granularity;
+    LocalDateTime bucketStart;
+    int appId;
+    int uriId;
+}
@@ -0,0 +1,14 @@
+package ru.practicum.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * A window ending at the query end; {@code from} is null for the all-time window.
+ */
+@Value
+public class StatsWindow {
+    String label;
+    LocalDateTime from;
+}
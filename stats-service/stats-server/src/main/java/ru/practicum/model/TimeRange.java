@@ -0,0 +1,16 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open interval [from, to).
+ */
+@Getter
+@AllArgsConstructor
+public class TimeRange {
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class UriCounter {
+    private int appId;
+    private int uriId;
+    private long hits;
+    private long uniqueHits;
+    private LocalDateTime firstHit;
+    private LocalDateTime lastHit;
+}
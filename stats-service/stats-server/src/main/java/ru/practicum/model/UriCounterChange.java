@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A counter as it stands after the change with the given version.
+ */
+@Getter
+@AllArgsConstructor
+public class UriCounterChange {
+    private int appId;
+    private int uriId;
+    private long hits;
+    private long uniqueHits;
+    private long version;
+}
@@ -4,11 +4,14 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+/**
+ * Hits of one (app, uri) in dictionary ids; names are resolved only when the response is built.
+ */
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
 public class ViewStats {
-    private String app;
-    private String uri;
+    private Integer appId;
+    private Integer uriId;
     private Long hits;
 }
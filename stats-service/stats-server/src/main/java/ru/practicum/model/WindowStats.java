@@ -0,0 +1,15 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Hits of one (app, uri) per window, in the order the windows were requested.
+ */
+@Getter
+@AllArgsConstructor
+public class WindowStats {
+    private Integer appId;
+    private Integer uriId;
+    private long[] hits;
+}
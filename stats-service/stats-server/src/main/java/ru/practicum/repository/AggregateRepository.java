@@ -0,0 +1,49 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * The {@code stats_aggregate} list of aggregates known to hold every hit of {@code endpoint_hit}.
+ */
+@Repository
+public class AggregateRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect sqlDialect;
+    private final String insertSql;
+
+    public AggregateRepository(JdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlDialect = sqlDialect;
+        this.insertSql = sqlDialect.insertIfAbsent("stats_aggregate", List.of("name"), List.of());
+    }
+
+    public boolean isComplete(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select count(*) > 0 from stats_aggregate where name = ?", Boolean.class, name));
+    }
+
+    public void markComplete(String name) {
+        jdbcTemplate.update(insertSql, name);
+    }
+
+    public void markIncomplete(String name) {
+        jdbcTemplate.update("delete from stats_aggregate where name = ?", name);
+    }
+
+    public void markAllIncomplete() {
+        jdbcTemplate.update("delete from stats_aggregate");
+    }
+
+    /**
+     * Keeps hits from being written, by this or another stats-server, until the current transaction ends;
+     * on H2, which only serves a single in-process server, this is a no-op.
+     */
+    public void lockHits() {
+        if (sqlDialect.isPostgres()) {
+            jdbcTemplate.execute("lock table endpoint_hit in share row exclusive mode");
+        }
+    }
+}
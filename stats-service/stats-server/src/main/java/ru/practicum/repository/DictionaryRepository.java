@@ -0,0 +1,82 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Name-to-id dictionaries of the {@code stats_app} and {@code stats_uri} tables.
+ */
+@Repository
+public class DictionaryRepository {
+    public static final String APP = "stats_app";
+    public static final String URI = "stats_uri";
+    // Most names one lookup binds.
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<String, String> insertSql;
+
+    public DictionaryRepository(NamedParameterJdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = Map.of(
+                APP, sqlDialect.insertIfAbsent(APP, List.of("name"), List.of()),
+                URI, sqlDialect.insertIfAbsent(URI, List.of("name"), List.of()));
+    }
+
+    /**
+     * Returns the id of the name, adding it first if needed. Runs in its own transaction so that an id handed
+     * out to a cache is committed even if the caller's transaction rolls back.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int intern(String table, String name) {
+        jdbcTemplate.getJdbcTemplate().update(insertSql.get(table), name);
+        return jdbcTemplate.getJdbcTemplate().queryForObject("select id from " + table + " where name = ?",
+                Integer.class, name);
+    }
+
+    /**
+     * Passes (id, name) of every stored name out of {@code names} to the consumer, looking names up
+     * {@value #CHUNK_SIZE} at a time.
+     */
+    public void findIds(String table, Collection<String> names, BiConsumer<Integer, String> consumer) {
+        List<String> distinctNames = List.copyOf(new LinkedHashSet<>(names));
+        for (int i = 0; i < distinctNames.size(); i += CHUNK_SIZE) {
+            jdbcTemplate.query("select id, name from " + table + " where name in (:names)",
+                    new MapSqlParameterSource("names",
+                            distinctNames.subList(i, Math.min(i + CHUNK_SIZE, distinctNames.size()))),
+                    rs -> {
+                        consumer.accept(rs.getInt("id"), rs.getString("name"));
+                    });
+        }
+    }
+
+    /**
+     * Passes (id, name) of every stored id out of {@code ids} to the consumer, looking ids up
+     * {@value #CHUNK_SIZE} at a time.
+     */
+    public void findNames(String table, Collection<Integer> ids, BiConsumer<Integer, String> consumer) {
+        List<Integer> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        for (int i = 0; i < distinctIds.size(); i += CHUNK_SIZE) {
+            jdbcTemplate.query("select id, name from " + table + " where id in (:ids)",
+                    new MapSqlParameterSource("ids",
+                            distinctIds.subList(i, Math.min(i + CHUNK_SIZE, distinctIds.size()))),
+                    rs -> {
+                        consumer.accept(rs.getInt("id"), rs.getString("name"));
+                    });
+        }
+    }
+
+    public String findName(String table, int id) {
+        return jdbcTemplate.getJdbcTemplate().queryForObject("select name from " + table + " where id = ?",
+                String.class, id);
+    }
+}
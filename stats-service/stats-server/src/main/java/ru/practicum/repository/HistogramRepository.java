@@ -0,0 +1,58 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.HistogramBucket;
+import ru.practicum.model.RollupGranularity;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class HistogramRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public HistogramRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Hits and distinct IPs of the uri per bucket in [from, to), counted over raw hits in one grouped query.
+     */
+    public List<HistogramBucket> countHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                           int uriId) {
+        // date_trunc is understood by both PostgreSQL and H2.
+        String bucket = "date_trunc('" + granularity.name().toLowerCase() + "', created)";
+        String sql = "select " + bucket + " as bucket_start, sum(hits) as hits, count(distinct ip) as unique_hits " +
+                "from endpoint_hit where uri_id = :uriId and created >= :from and created < :to " +
+                "group by " + bucket + " order by bucket_start";
+        return jdbcTemplate.query(sql, parameters(from, to, uriId), (rs, rowNum) -> new HistogramBucket(
+                rs.getTimestamp("bucket_start").toLocalDateTime(),
+                rs.getLong("hits"),
+                rs.getLong("unique_hits")));
+    }
+
+    /**
+     * Hits of the uri per bucket in [from, to), summed over apps from the rollup of the same granularity.
+     */
+    public List<HistogramBucket> sumRollups(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                            int uriId) {
+        String sql = "select bucket_start, sum(hits) as hits from hit_rollup " +
+                "where granularity = :granularity and bucket_start >= :from and bucket_start < :to and uri_id = :uriId " +
+                "group by bucket_start order by bucket_start";
+        return jdbcTemplate.query(sql, parameters(from, to, uriId).addValue("granularity", granularity.name()),
+                (rs, rowNum) -> new HistogramBucket(
+                        rs.getTimestamp("bucket_start").toLocalDateTime(),
+                        rs.getLong("hits"),
+                        null));
+    }
+
+    private static MapSqlParameterSource parameters(LocalDateTime from, LocalDateTime to, int uriId) {
+        return new MapSqlParameterSource()
+                .addValue("uriId", uriId)
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.EndpointHit;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+    private static final String INSERT_HIT = "insert into endpoint_hit (app_id, uri_id, ip, created, hits) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<EndpointHit> hits) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setBytes(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getCreated()));
+            ps.setInt(5, hit.getHits());
+        });
+    }
+
+    /**
+     * Up to {@code limit} hits with an id above {@code afterId}, in id order, for walking the whole table.
+     */
+    public List<EndpointHit> findAfter(long afterId, int limit) {
+        return jdbcTemplate.query("select id, app_id, uri_id, ip, created, hits from endpoint_hit " +
+                        "where id > ? order by id limit ?",
+                (rs, rowNum) -> new EndpointHit(
+                        rs.getLong("id"),
+                        rs.getInt("app_id"),
+                        rs.getInt("uri_id"),
+                        rs.getBytes("ip"),
+                        rs.getTimestamp("created").toLocalDateTime(),
+                        rs.getInt("hits")),
+                afterId, limit);
+    }
+}
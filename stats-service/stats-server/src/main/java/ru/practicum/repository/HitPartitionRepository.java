@@ -0,0 +1,97 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    public static final String UNPARTITIONED = "endpoint_hit_unpartitioned";
+    private static final String DEFAULT_PARTITION = "endpoint_hit_default";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList("select c.relname from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid " +
+                "join pg_class p on p.oid = i.inhparent " +
+                "where p.relname = 'endpoint_hit'", String.class);
+    }
+
+    public boolean tableExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name));
+    }
+
+    /**
+     * Creates the partition [from, to) and moves into it the rows of that range that had landed in the default
+     * partition, which would otherwise keep the partition from being attached.
+     */
+    @Transactional
+    public void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        String range = "created >= '" + Timestamp.valueOf(from) + "' and created < '" + Timestamp.valueOf(to) + "'";
+        jdbcTemplate.execute("create table " + name + " (like endpoint_hit including defaults including constraints)");
+        jdbcTemplate.execute("with moved as (delete from " + DEFAULT_PARTITION + " where " + range + " returning *) " +
+                "insert into " + name + " select * from moved");
+        jdbcTemplate.execute("alter table endpoint_hit attach partition " + name + " " +
+                "for values from ('" + Timestamp.valueOf(from) + "') to ('" + Timestamp.valueOf(to) + "')");
+    }
+
+    public void dropPartition(String name) {
+        jdbcTemplate.execute("drop table if exists " + name);
+    }
+
+    public int deleteHitsBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("delete from endpoint_hit where created < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public int deleteDefaultPartitionHitsBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("delete from " + DEFAULT_PARTITION + " where created < ?", Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Oldest and newest {@code created} of the table left behind by the migration to partitions.
+     */
+    public Map<String, Object> findUnpartitionedSpan() {
+        return jdbcTemplate.queryForMap("select min(created) as first, max(created) as last from " + UNPARTITIONED);
+    }
+
+    /**
+     * Whether the table left behind by the migration has the string columns of the table stats-server created
+     * before partitioning: app, uri and ip as text.
+     */
+    public boolean hasLegacyLayout() {
+        Integer columns = jdbcTemplate.queryForObject("select count(*) from information_schema.columns " +
+                "where lower(table_name) = ? and lower(column_name) in ('app', 'uri', 'ip', 'created')",
+                Integer.class, UNPARTITIONED);
+        return columns != null && columns == 4;
+    }
+
+    /**
+     * Up to {@code limit} rows of the table left behind by the migration with an id above {@code afterId},
+     * by id in id order.
+     */
+    public SortedMap<Long, EndpointHitDto> findUnpartitionedAfter(long afterId, int limit) {
+        SortedMap<Long, EndpointHitDto> hits = new TreeMap<>();
+        jdbcTemplate.query("select id, app, uri, ip, created from " + UNPARTITIONED + " where id > ? order by id limit ?",
+                rs -> {
+                    Timestamp created = rs.getTimestamp("created");
+                    hits.put(rs.getLong("id"), new EndpointHitDto(rs.getString("app"), rs.getString("uri"),
+                            rs.getString("ip"), created == null ? null : created.toLocalDateTime()));
+                }, afterId, limit);
+        return hits;
+    }
+
+    public void dropUnpartitioned() {
+        jdbcTemplate.execute("drop table " + UNPARTITIONED);
+    }
+}
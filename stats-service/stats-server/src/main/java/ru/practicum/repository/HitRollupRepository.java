@@ -0,0 +1,64 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.RollupKey;
+import ru.practicum.model.RollupSegment;
+import ru.practicum.model.ViewStats;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class HitRollupRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String incrementSql;
+
+    public HitRollupRepository(NamedParameterJdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.incrementSql = sqlDialect.insertOrIncrement("hit_rollup",
+                List.of("granularity", "bucket_start", "app_id", "uri_id"), List.of("hits"));
+    }
+
+    /**
+     * Adds hit counts to the buckets; callers pass keys in {@link RollupKey#STORAGE_ORDER}.
+     */
+    public void increment(Map<RollupKey, Long> deltas) {
+        List<Map.Entry<RollupKey, Long>> entries = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.getJdbcTemplate().batchUpdate(incrementSql, entries, entries.size(), (ps, entry) -> {
+            RollupKey key = entry.getKey();
+            ps.setString(1, key.getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.getBucketStart()));
+            ps.setInt(3, key.getAppId());
+            ps.setInt(4, key.getUriId());
+            ps.setLong(5, entry.getValue());
+        });
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.getJdbcTemplate().update("delete from hit_rollup");
+    }
+
+    public List<ViewStats> sumHits(List<RollupSegment> segments, List<Integer> uriIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            RollupSegment segment = segments.get(i);
+            conditions.add("(granularity = :g" + i + " and bucket_start >= :from" + i + " and bucket_start < :to" + i + ")");
+            parameters.addValue("g" + i, segment.getGranularity().name());
+            parameters.addValue("from" + i, Timestamp.valueOf(segment.getFrom()));
+            parameters.addValue("to" + i, Timestamp.valueOf(segment.getTo()));
+        }
+        String sql = "select app_id, uri_id, sum(hits) as hits from hit_rollup where (" + String.join(" or ", conditions) + ")";
+        if (!uriIds.isEmpty()) {
+            sql += " and uri_id in (:uriIds)";
+            parameters.addValue("uriIds", uriIds);
+        }
+        sql += " group by app_id, uri_id";
+        return jdbcTemplate.query(sql, parameters,
+                (rs, rowNum) -> new ViewStats(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.RollupKey;
+import ru.practicum.model.RollupSegment;
+import ru.practicum.model.TimeRange;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class HitSketchRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String insertSql;
+
+    public HitSketchRepository(NamedParameterJdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = sqlDialect.insertIfAbsent("hit_sketch",
+                List.of("granularity", "bucket_start", "app_id", "uri_id"), List.of("registers"));
+    }
+
+    /**
+     * Stores the sketch if the bucket has none yet; returns {@code false} when a sketch already exists.
+     */
+    public boolean insertIfAbsent(RollupKey key, byte[] registers) {
+        return jdbcTemplate.getJdbcTemplate().update(insertSql, key.getGranularity().name(),
+                Timestamp.valueOf(key.getBucketStart()), key.getAppId(), key.getUriId(), registers) > 0;
+    }
+
+    public byte[] findForUpdate(RollupKey key) {
+        return jdbcTemplate.getJdbcTemplate().queryForObject("select registers from hit_sketch " +
+                        "where granularity = ? and bucket_start = ? and app_id = ? and uri_id = ? for update",
+                (rs, rowNum) -> rs.getBytes(1), key.getGranularity().name(),
+                Timestamp.valueOf(key.getBucketStart()), key.getAppId(), key.getUriId());
+    }
+
+    public void update(RollupKey key, byte[] registers) {
+        jdbcTemplate.getJdbcTemplate().update("update hit_sketch set registers = ? " +
+                        "where granularity = ? and bucket_start = ? and app_id = ? and uri_id = ?",
+                registers, key.getGranularity().name(), Timestamp.valueOf(key.getBucketStart()), key.getAppId(), key.getUriId());
+    }
+
+    /**
+     * Streams (app_id, uri_id, registers) of every bucket in the segments to the handler.
+     */
+    public void findSketches(List<RollupSegment> segments, List<Integer> uriIds, RowCallbackHandler handler) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            RollupSegment segment = segments.get(i);
+            conditions.add("(granularity = :g" + i + " and bucket_start >= :from" + i + " and bucket_start < :to" + i + ")");
+            parameters.addValue("g" + i, segment.getGranularity().name());
+            parameters.addValue("from" + i, Timestamp.valueOf(segment.getFrom()));
+            parameters.addValue("to" + i, Timestamp.valueOf(segment.getTo()));
+        }
+        String sql = "select app_id, uri_id, registers from hit_sketch where (" + String.join(" or ", conditions) + ")";
+        jdbcTemplate.query(withUris(sql, uriIds, parameters), parameters, handler);
+    }
+
+    /**
+     * Streams distinct (app_id, uri_id, ip) of the raw hits in the range to the handler.
+     */
+    public void findVisitors(TimeRange range, List<Integer> uriIds, RowCallbackHandler handler) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(range.getFrom()))
+                .addValue("to", Timestamp.valueOf(range.getTo()));
+        String sql = "select distinct app_id, uri_id, ip from endpoint_hit where created >= :from and created < :to";
+        jdbcTemplate.query(withUris(sql, uriIds, parameters), parameters, handler);
+    }
+
+    private static String withUris(String sql, List<Integer> uriIds, MapSqlParameterSource parameters) {
+        if (uriIds.isEmpty()) {
+            return sql;
+        }
+        parameters.addValue("uriIds", uriIds);
+        return sql + " and uri_id in (:uriIds)";
+    }
+}
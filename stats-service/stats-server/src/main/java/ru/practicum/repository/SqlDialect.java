@@ -0,0 +1,101 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the few statements that differ between PostgreSQL and the H2 database used by the ci/test profiles.
+ */
+@Component
+public class SqlDialect {
+    private final boolean postgres;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SqlDialect(DataSource dataSource) throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        this.postgres = "PostgreSQL".equalsIgnoreCase(product);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+
+    /**
+     * Insert-or-add statement: a new row is inserted, an existing row gets the counter columns incremented.
+     * Parameters are bound in the order of {@code keyColumns} followed by {@code counterColumns}.
+     */
+    public String insertOrIncrement(String table, List<String> keyColumns, List<String> counterColumns) {
+        if (postgres) {
+            return insertStatement(table, keyColumns, counterColumns) +
+                    " on conflict (" + String.join(", ", keyColumns) + ") do update set " +
+                    counterColumns.stream()
+                            .map(c -> c + " = " + table + "." + c + " + excluded." + c)
+                            .collect(Collectors.joining(", "));
+        }
+        return mergeStatement(table, keyColumns, counterColumns, columnTypes(table)) +
+                " when matched then update set " +
+                counterColumns.stream()
+                        .map(c -> c + " = t." + c + " + s." + c)
+                        .collect(Collectors.joining(", ")) +
+                mergeInsert(keyColumns, counterColumns);
+    }
+
+    /**
+     * Insert statement that silently skips rows whose key already exists; the update count tells which rows were new.
+     */
+    public String insertIfAbsent(String table, List<String> keyColumns, List<String> otherColumns) {
+        if (postgres) {
+            return insertStatement(table, keyColumns, otherColumns) +
+                    " on conflict (" + String.join(", ", keyColumns) + ") do nothing";
+        }
+        return mergeStatement(table, keyColumns, otherColumns, columnTypes(table)) + mergeInsert(keyColumns, otherColumns);
+    }
+
+    private static String insertStatement(String table, List<String> keyColumns, List<String> otherColumns) {
+        List<String> columns = concat(keyColumns, otherColumns);
+        return "insert into " + table + " (" + String.join(", ", columns) + ") values (" +
+                columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    // H2 types untyped VALUES parameters as character strings, which mangles binary columns, hence the casts.
+    private static String mergeStatement(String table, List<String> keyColumns, List<String> otherColumns,
+                                         Map<String, String> columnTypes) {
+        List<String> columns = concat(keyColumns, otherColumns);
+        return "merge into " + table + " t using (values (" +
+                columns.stream()
+                        .map(c -> "cast(? as " + columnTypes.get(c) + ")")
+                        .collect(Collectors.joining(", ")) + ")) s(" +
+                String.join(", ", columns) + ") on " +
+                keyColumns.stream().map(c -> "t." + c + " = s." + c).collect(Collectors.joining(" and "));
+    }
+
+    private static String mergeInsert(List<String> keyColumns, List<String> otherColumns) {
+        List<String> columns = concat(keyColumns, otherColumns);
+        return " when not matched then insert (" + String.join(", ", columns) + ") values (" +
+                columns.stream().map(c -> "s." + c).collect(Collectors.joining(", ")) + ")";
+    }
+
+    private Map<String, String> columnTypes(String table) {
+        Map<String, String> types = new HashMap<>();
+        jdbcTemplate.query("select column_name, data_type from information_schema.columns where lower(table_name) = ?",
+                rs -> {
+                    types.put(rs.getString("column_name").toLowerCase(), rs.getString("data_type"));
+                }, table.toLowerCase());
+        return types;
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        return Stream.concat(first.stream(), second.stream()).collect(Collectors.toList());
+    }
+}
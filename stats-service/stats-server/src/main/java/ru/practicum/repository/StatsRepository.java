@@ -2,32 +2,79 @@ package ru.practicum.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.model.EndpointHit;
 import ru.practicum.model.ViewStats;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
 
-    @Query(" select new ru.practicum.model.ViewStats(app, uri, count(distinct ip) as hits) from EndpointHit " +
-            "where created between ?1 and ?2 and uri in(?3) " +
-            "group by app, uri order by hits desc")
-    List<ViewStats> getStatisticsWithUniqueIpAndUris(LocalDateTime start, LocalDateTime end, List<String> uri);
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, count(distinct ip) as hits) from EndpointHit " +
+            "where created between ?1 and ?2 and uriId in(?3) " +
+            "group by appId, uriId order by hits desc")
+    List<ViewStats> getStatisticsWithUniqueIpAndUris(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
 
-    @Query(" select new ru.practicum.model.ViewStats(app, uri, count(ip) as hits) from EndpointHit " +
-            "where created between ?1 and ?2 and uri in(?3) " +
-            "group by app, uri order by hits desc")
-    List<ViewStats> getAllStatisticsWithUris(LocalDateTime start, LocalDateTime end, List<String> uri);
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, sum(hits) as hits) from EndpointHit " +
+            "where created between ?1 and ?2 and uriId in(?3) " +
+            "group by appId, uriId order by hits desc")
+    List<ViewStats> getAllStatisticsWithUris(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
 
-    @Query(" select new ru.practicum.model.ViewStats(app, uri, count(distinct ip) as hits) from EndpointHit " +
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, count(distinct ip) as hits) from EndpointHit " +
             "where created between ?1 and ?2 " +
-            "group by app, uri order by hits desc")
+            "group by appId, uriId order by hits desc")
     List<ViewStats> getStatisticsWithUniqueIp(LocalDateTime start, LocalDateTime end);
 
-    @Query(" select new ru.practicum.model.ViewStats(app, uri, count(ip) as hits) from EndpointHit " +
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, sum(hits) as hits) from EndpointHit " +
             "where created between ?1 and ?2 " +
-            "group by app, uri order by hits desc")
+            "group by appId, uriId order by hits desc")
     List<ViewStats> getAllStatistics(LocalDateTime start, LocalDateTime end);
 
-}
\ No newline at end of file
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, sum(hits) as hits) from EndpointHit " +
+            "where created >= ?1 and created < ?2 and uriId in(?3) " +
+            "group by appId, uriId")
+    List<ViewStats> countHitsInHalfOpenRangeWithUris(LocalDateTime from, LocalDateTime to, List<Integer> uriIds);
+
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, sum(hits) as hits) from EndpointHit " +
+            "where created >= ?1 and created < ?2 " +
+            "group by appId, uriId")
+    List<ViewStats> countHitsInHalfOpenRange(LocalDateTime from, LocalDateTime to);
+
+    @Query("select min(created) from EndpointHit")
+    LocalDateTime findEarliestCreated();
+
+    @Query("select max(created) from EndpointHit")
+    LocalDateTime findLatestCreated();
+
+    // Streaming variants: rows are fetched through a cursor and must be consumed inside a transaction.
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, count(distinct ip) as hits) from EndpointHit " +
+            "where created between ?1 and ?2 and uriId in(?3) " +
+            "group by appId, uriId order by hits desc")
+    Stream<ViewStats> streamStatisticsWithUniqueIpAndUris(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, sum(hits) as hits) from EndpointHit " +
+            "where created between ?1 and ?2 and uriId in(?3) " +
+            "group by appId, uriId order by hits desc")
+    Stream<ViewStats> streamAllStatisticsWithUris(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, count(distinct ip) as hits) from EndpointHit " +
+            "where created between ?1 and ?2 " +
+            "group by appId, uriId order by hits desc")
+    Stream<ViewStats> streamStatisticsWithUniqueIp(LocalDateTime start, LocalDateTime end);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(" select new ru.practicum.model.ViewStats(appId, uriId, sum(hits) as hits) from EndpointHit " +
+            "where created between ?1 and ?2 " +
+            "group by appId, uriId order by hits desc")
+    Stream<ViewStats> streamAllStatistics(LocalDateTime start, LocalDateTime end);
+
+}
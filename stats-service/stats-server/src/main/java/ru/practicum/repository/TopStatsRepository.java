@@ -0,0 +1,88 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.RollupSegment;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.ViewStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Top (app, uri) pairs by hits, selected by the database: the uri prefix is matched and the sorted groups are cut
+ * to {@code limit} in SQL, so only {@code limit} rows ever leave it.
+ */
+@Repository
+public class TopStatsRepository {
+    private static final String ORDER_AND_LIMIT = " group by app_id, uri_id order by hits desc, app_id, uri_id limit :limit";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TopStatsRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Sums the hits of the rollup segments and of the raw half-open ranges, which must not overlap.
+     */
+    public List<ViewStats> findTop(List<RollupSegment> segments, List<TimeRange> rawRanges, String prefix, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        String uriFilter = uriFilter(prefix, parameters);
+        List<String> parts = new ArrayList<>();
+        if (!segments.isEmpty()) {
+            List<String> conditions = new ArrayList<>();
+            for (int i = 0; i < segments.size(); i++) {
+                RollupSegment segment = segments.get(i);
+                conditions.add("(granularity = :g" + i + " and bucket_start >= :from" + i + " and bucket_start < :to" + i + ")");
+                parameters.addValue("g" + i, segment.getGranularity().name());
+                parameters.addValue("from" + i, Timestamp.valueOf(segment.getFrom()));
+                parameters.addValue("to" + i, Timestamp.valueOf(segment.getTo()));
+            }
+            parts.add("select app_id, uri_id, hits from hit_rollup where (" + String.join(" or ", conditions) + ")" +
+                    uriFilter);
+        }
+        if (!rawRanges.isEmpty()) {
+            List<String> conditions = new ArrayList<>();
+            for (int i = 0; i < rawRanges.size(); i++) {
+                TimeRange range = rawRanges.get(i);
+                conditions.add("(created >= :rawFrom" + i + " and created < :rawTo" + i + ")");
+                parameters.addValue("rawFrom" + i, Timestamp.valueOf(range.getFrom()));
+                parameters.addValue("rawTo" + i, Timestamp.valueOf(range.getTo()));
+            }
+            parts.add("select app_id, uri_id, hits from endpoint_hit where (" + String.join(" or ", conditions) + ")" +
+                    uriFilter);
+        }
+        if (parts.isEmpty()) {
+            return List.of();
+        }
+        String sql = "select app_id, uri_id, sum(hits) as hits from (" + String.join(" union all ", parts) + ") h" +
+                ORDER_AND_LIMIT;
+        return jdbcTemplate.query(sql, parameters,
+                (rs, rowNum) -> new ViewStats(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+
+    /**
+     * Distinct ips per (app, uri) over raw hits created within [start, end].
+     */
+    public List<ViewStats> findTopUnique(LocalDateTime start, LocalDateTime end, String prefix, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit)
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        String sql = "select app_id, uri_id, count(distinct ip) as hits from endpoint_hit " +
+                "where created between :start and :end" + uriFilter(prefix, parameters) + ORDER_AND_LIMIT;
+        return jdbcTemplate.query(sql, parameters,
+                (rs, rowNum) -> new ViewStats(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+
+    private static String uriFilter(String prefix, MapSqlParameterSource parameters) {
+        if (prefix == null || prefix.isEmpty()) {
+            return "";
+        }
+        parameters.addValue("prefix", prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        return " and uri_id in (select id from stats_uri where name like :prefix escape '\\')";
+    }
+}
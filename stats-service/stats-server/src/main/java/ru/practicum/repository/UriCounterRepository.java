@@ -0,0 +1,145 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.UriCounter;
+import ru.practicum.model.UriCounterChange;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public class UriCounterRepository {
+    private static final String UPDATE_SPAN = "update uri_counter " +
+            "set first_hit = least(coalesce(first_hit, ?), ?), last_hit = greatest(coalesce(last_hit, ?), ?), version = ? " +
+            "where app_id = ? and uri_id = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String insertVisitorSql;
+    private final String incrementSql;
+
+    public UriCounterRepository(NamedParameterJdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertVisitorSql = sqlDialect.insertIfAbsent("uri_visitor",
+                List.of("app_id", "uri_id", "ip"), List.of("first_seen"));
+        this.incrementSql = sqlDialect.insertOrIncrement("uri_counter",
+                List.of("app_id", "uri_id"), List.of("hits", "unique_hits"));
+    }
+
+    /**
+     * Records first visits; the update count is 1 for each visitor that had not been seen on the uri before.
+     */
+    public int[] insertVisitors(List<EndpointHit> visits) {
+        return jdbcTemplate.getJdbcTemplate().batchUpdate(insertVisitorSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                EndpointHit visit = visits.get(i);
+                ps.setInt(1, visit.getAppId());
+                ps.setInt(2, visit.getUriId());
+                ps.setBytes(3, visit.getIp());
+                ps.setTimestamp(4, Timestamp.valueOf(visit.getCreated()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return visits.size();
+            }
+        });
+    }
+
+    /**
+     * Adds hits and new visitors to the counters, widens their [first_hit, last_hit] span and stamps them with
+     * the version of the change.
+     */
+    public void increment(List<UriCounter> deltas, long version) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(incrementSql, deltas, deltas.size(), (ps, delta) -> {
+            ps.setInt(1, delta.getAppId());
+            ps.setInt(2, delta.getUriId());
+            ps.setLong(3, delta.getHits());
+            ps.setLong(4, delta.getUniqueHits());
+        });
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_SPAN, deltas, deltas.size(), (ps, delta) -> {
+            Timestamp first = Timestamp.valueOf(delta.getFirstHit());
+            Timestamp last = Timestamp.valueOf(delta.getLastHit());
+            ps.setTimestamp(1, first);
+            ps.setTimestamp(2, first);
+            ps.setTimestamp(3, last);
+            ps.setTimestamp(4, last);
+            ps.setLong(5, version);
+            ps.setInt(6, delta.getAppId());
+            ps.setInt(7, delta.getUriId());
+        });
+    }
+
+    /**
+     * Replaces the visitors and counters with those of the hits in {@code endpoint_hit}, all stamped with the version.
+     */
+    public void rebuild(long version) {
+        JdbcTemplate template = jdbcTemplate.getJdbcTemplate();
+        template.update("delete from uri_visitor");
+        template.update("insert into uri_visitor (app_id, uri_id, ip, first_seen) " +
+                "select app_id, uri_id, ip, min(created) from endpoint_hit group by app_id, uri_id, ip");
+        template.update("delete from uri_counter");
+        template.update("insert into uri_counter (app_id, uri_id, hits, unique_hits, first_hit, last_hit, version) " +
+                "select app_id, uri_id, sum(hits), count(distinct ip), min(created), max(created), ? " +
+                "from endpoint_hit group by app_id, uri_id", version);
+    }
+
+    public long findMaxVersion() {
+        Long version = jdbcTemplate.getJdbcTemplate().queryForObject("select max(version) from uri_counter", Long.class);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Counters with a version in (since, upTo], in version order, optionally only of one app and of uris starting
+     * with the prefix.
+     */
+    public List<UriCounterChange> findChanged(long since, long upTo, String app, String prefix, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("since", since)
+                .addValue("upTo", upTo)
+                .addValue("limit", limit);
+        String sql = "select c.app_id, c.uri_id, c.hits, c.unique_hits, c.version from uri_counter c";
+        String where = " where c.version > :since and c.version <= :upTo";
+        if (app != null) {
+            sql += " join stats_app a on a.id = c.app_id";
+            where += " and a.name = :app";
+            parameters.addValue("app", app);
+        }
+        if (prefix != null) {
+            sql += " join stats_uri u on u.id = c.uri_id";
+            where += " and u.name like :pattern escape '\\'";
+            parameters.addValue("pattern",
+                    prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        sql += where + " order by c.version, c.app_id, c.uri_id limit :limit";
+        return jdbcTemplate.query(sql, parameters, (rs, rowNum) -> new UriCounterChange(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getLong("hits"),
+                rs.getLong("unique_hits"),
+                rs.getLong("version")));
+    }
+
+    public List<UriCounter> findCounters(List<Integer> uriIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = "select app_id, uri_id, hits, unique_hits, first_hit, last_hit from uri_counter";
+        if (!uriIds.isEmpty()) {
+            sql += " where uri_id in (:uriIds)";
+            parameters.addValue("uriIds", uriIds);
+        }
+        return jdbcTemplate.query(sql, parameters, (rs, rowNum) -> new UriCounter(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getLong("hits"),
+                rs.getLong("unique_hits"),
+                rs.getTimestamp("first_hit").toLocalDateTime(),
+                rs.getTimestamp("last_hit").toLocalDateTime()));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.StatsWindow;
+import ru.practicum.model.WindowStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class WindowStatsRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public WindowStatsRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Hits per (app, uri) for every window ending at {@code end}, computed with conditional aggregation
+     * in one pass over the hits of the widest window.
+     */
+    public List<WindowStats> countHits(List<StatsWindow> windows, LocalDateTime end, List<Integer> uriIds,
+                                       boolean unique) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("end", Timestamp.valueOf(end));
+        List<String> columns = new ArrayList<>();
+        LocalDateTime widest = end;
+        boolean allTime = false;
+        for (int i = 0; i < windows.size(); i++) {
+            LocalDateTime from = windows.get(i).getFrom();
+            if (from == null) {
+                allTime = true;
+                columns.add((unique ? "count(distinct ip)" : "coalesce(sum(hits), 0)") + " as w" + i);
+                continue;
+            }
+            parameters.addValue("from" + i, Timestamp.valueOf(from));
+            columns.add((unique ? "count(distinct " : "coalesce(sum(") + "case when created >= :from" + i +
+                    " then " + (unique ? "ip end)" : "hits end), 0)") + " as w" + i);
+            widest = from.isBefore(widest) ? from : widest;
+        }
+
+        String sql = "select app_id, uri_id, " + String.join(", ", columns) +
+                " from endpoint_hit where created <= :end";
+        if (!allTime) {
+            sql += " and created >= :widest";
+            parameters.addValue("widest", Timestamp.valueOf(widest));
+        }
+        if (!uriIds.isEmpty()) {
+            sql += " and uri_id in (:uriIds)";
+            parameters.addValue("uriIds", uriIds);
+        }
+        sql += " group by app_id, uri_id";
+        return jdbcTemplate.query(sql, parameters, (rs, rowNum) -> {
+            long[] hits = new long[windows.size()];
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] = rs.getLong("w" + i);
+            }
+            return new WindowStats(rs.getInt("app_id"), rs.getInt("uri_id"), hits);
+        });
+    }
+}
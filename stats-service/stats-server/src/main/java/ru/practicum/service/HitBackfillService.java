@@ -0,0 +1,104 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.AggregateRepository;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.repository.HitRollupRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Rebuilds on startup the aggregates kept next to {@code endpoint_hit} that may be missing hits: hits written while
+ * an aggregate was disabled never reached it, so an aggregate is listed in {@code stats_aggregate} only after it
+ * was built from the raw hits, and is taken off the list whenever a server starts with it disabled.
+ * The rebuild runs in one transaction that keeps hits from being written meanwhile. Raw hits already dropped by
+ * retention are not in the rebuilt rollups and counters; sketches are merged into rather than replaced, so they keep
+ * them. Runs after {@link HitPartitionService}, whose migration may add hits.
+ */
+@Slf4j
+@Service
+@DependsOn("hitPartitionService")
+public class HitBackfillService {
+    static final String ROLLUP = "rollup";
+    static final String COUNTER = "counter";
+    static final String SKETCH = "sketch";
+    // Hits read and recorded at a time.
+    private static final int CHUNK_SIZE = 1000;
+
+    private final AggregateRepository aggregateRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final HitRollupService hitRollupService;
+    private final HitRollupRepository hitRollupRepository;
+    private final UriCounterService uriCounterService;
+    private final HitSketchService hitSketchService;
+    private final TransactionTemplate transactionTemplate;
+
+    public HitBackfillService(AggregateRepository aggregateRepository,
+                              HitBatchRepository hitBatchRepository,
+                              HitRollupService hitRollupService,
+                              HitRollupRepository hitRollupRepository,
+                              UriCounterService uriCounterService,
+                              HitSketchService hitSketchService,
+                              TransactionTemplate transactionTemplate) {
+        this.aggregateRepository = aggregateRepository;
+        this.hitBatchRepository = hitBatchRepository;
+        this.hitRollupService = hitRollupService;
+        this.hitRollupRepository = hitRollupRepository;
+        this.uriCounterService = uriCounterService;
+        this.hitSketchService = hitSketchService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        sync(ROLLUP, hitRollupService.isEnabled(), () -> {
+            hitRollupRepository.deleteAll();
+            forEachChunk(hitRollupService::record);
+        });
+        sync(COUNTER, uriCounterService.isEnabled(), uriCounterService::rebuild);
+        sync(SKETCH, hitSketchService.isEnabled(), () -> forEachChunk(hitSketchService::record));
+    }
+
+    private void sync(String aggregate, boolean enabled, Runnable rebuild) {
+        if (!enabled) {
+            aggregateRepository.markIncomplete(aggregate);
+            return;
+        }
+        if (aggregateRepository.isComplete(aggregate)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            aggregateRepository.lockHits();
+            // Another server may have rebuilt it while this one waited for the lock.
+            if (aggregateRepository.isComplete(aggregate)) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            rebuild.run();
+            aggregateRepository.markComplete(aggregate);
+            log.info("Rebuilt the {} aggregate from the stored hits in {} ms", aggregate,
+                    System.currentTimeMillis() - started);
+        });
+    }
+
+    /**
+     * Passes every stored hit to the consumer, {@value #CHUNK_SIZE} at a time.
+     */
+    private void forEachChunk(Consumer<List<EndpointHit>> consumer) {
+        long lastId = 0;
+        List<EndpointHit> chunk;
+        do {
+            chunk = hitBatchRepository.findAfter(lastId, CHUNK_SIZE);
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory buffer for asynchronous hit ingestion.
+ * A single flusher thread drains it into {@link HitWriter} once {@code batch-size} hits are collected
+ * or {@code flush-interval-ms} has passed since the first hit of the batch, whichever comes first.
+ */
+@Slf4j
+@Component
+public class HitBuffer {
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<EndpointHit> queue;
+    private final HitWriter hitWriter;
+
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public HitBuffer(@Value("${stats.ingest.async:false}") boolean enabled,
+                     @Value("${stats.ingest.buffer-capacity:10000}") int capacity,
+                     @Value("${stats.ingest.batch-size:500}") int batchSize,
+                     @Value("${stats.ingest.flush-interval-ms:200}") long flushIntervalMs,
+                     HitWriter hitWriter,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.hitWriter = hitWriter;
+
+        Gauge.builder("stats.ingest.buffer.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = meterRegistry.timer("stats.ingest.flush");
+        this.flushedCounter = meterRegistry.counter("stats.ingest.flushed");
+        this.rejectedCounter = meterRegistry.counter("stats.ingest.rejected");
+        this.failedCounter = meterRegistry.counter("stats.ingest.failed");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a hit without blocking; {@code false} means the buffer is full and the caller should push back.
+     */
+    public boolean offer(EndpointHit hit) {
+        if (queue.offer(hit)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "hit-buffer-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Asynchronous hit ingestion enabled: capacity {}, batch size {}, flush interval {} ms",
+                queue.remainingCapacity(), batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        List<EndpointHit> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            flush(rest.subList(from, Math.min(rest.size(), from + batchSize)));
+        }
+    }
+
+    private void run() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<EndpointHit> batch) throws InterruptedException {
+        EndpointHit first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            EndpointHit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<EndpointHit> batch) {
+        try {
+            flushTimer.record(() -> hitWriter.write(batch));
+            flushedCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to flush {} buffered hits", batch.size(), e);
+        }
+    }
+}
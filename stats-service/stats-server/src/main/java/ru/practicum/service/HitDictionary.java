@@ -0,0 +1,155 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.repository.DictionaryRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns app and uri names into small integer ids, so hit rows and aggregates store two ints instead of
+ * two strings. Both directions are cached in process, in LRU caches of {@code max-apps} and {@code max-uris}
+ * names; ids never change once assigned, so the caches need no invalidation and a name costs a round trip
+ * only when it was not used recently.
+ */
+@Service
+public class HitDictionary {
+    private final Dictionary apps;
+    private final Dictionary uris;
+
+    public HitDictionary(DictionaryRepository dictionaryRepository,
+                         @Value("${stats.dictionary.max-apps:1000}") int maxApps,
+                         @Value("${stats.dictionary.max-uris:100000}") int maxUris) {
+        this.apps = new Dictionary(DictionaryRepository.APP, dictionaryRepository, maxApps);
+        this.uris = new Dictionary(DictionaryRepository.URI, dictionaryRepository, maxUris);
+    }
+
+    public int appId(String app) {
+        return apps.intern(app);
+    }
+
+    public int uriId(String uri) {
+        return uris.intern(uri);
+    }
+
+    /**
+     * Ids of the uris that have ever been hit; unknown uris are left out.
+     */
+    public List<Integer> findUriIds(Collection<String> names) {
+        return uris.find(names);
+    }
+
+    public String appName(int id) {
+        return apps.name(id);
+    }
+
+    public String uriName(int id) {
+        return uris.name(id);
+    }
+
+    /**
+     * Names of the app ids, with the ones not cached looked up together rather than one by one.
+     */
+    public Map<Integer, String> appNames(Collection<Integer> ids) {
+        return apps.names(ids);
+    }
+
+    /**
+     * Names of the uri ids, with the ones not cached looked up together rather than one by one.
+     */
+    public Map<Integer, String> uriNames(Collection<Integer> ids) {
+        return uris.names(ids);
+    }
+
+    private static final class Dictionary {
+        private final String table;
+        private final DictionaryRepository repository;
+        private final Map<String, Integer> ids;
+        private final Map<Integer, String> names;
+
+        private Dictionary(String table, DictionaryRepository repository, int maxEntries) {
+            this.table = table;
+            this.repository = repository;
+            this.ids = lru(maxEntries);
+            this.names = lru(maxEntries);
+        }
+
+        private static <K, V> Map<K, V> lru(int maxEntries) {
+            return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > maxEntries;
+                }
+            });
+        }
+
+        private int intern(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = repository.intern(table, name);
+                put(id, name);
+            }
+            return id;
+        }
+
+        private List<Integer> find(Collection<String> requested) {
+            List<Integer> found = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String name : requested) {
+                Integer id = ids.get(name);
+                if (id == null) {
+                    missing.add(name);
+                } else {
+                    found.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                repository.findIds(table, missing, (id, name) -> {
+                    put(id, name);
+                    found.add(id);
+                });
+            }
+            return found;
+        }
+
+        private String name(int id) {
+            String name = names.get(id);
+            if (name == null) {
+                name = repository.findName(table, id);
+                put(id, name);
+            }
+            return name;
+        }
+
+        private Map<Integer, String> names(Collection<Integer> requested) {
+            Map<Integer, String> found = new HashMap<>();
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : requested) {
+                String name = names.get(id);
+                if (name == null) {
+                    missing.add(id);
+                } else {
+                    found.put(id, name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                repository.findNames(table, missing, (id, name) -> {
+                    put(id, name);
+                    found.put(id, name);
+                });
+            }
+            return found;
+        }
+
+        private void put(int id, String name) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+    }
+}
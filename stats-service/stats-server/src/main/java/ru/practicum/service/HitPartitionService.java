@@ -0,0 +1,163 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.repository.HitPartitionRepository;
+import ru.practicum.repository.SqlDialect;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps {@code endpoint_hit} partitioned by {@code created} on PostgreSQL: partitions of one day or month
+ * are created ahead of time and whole partitions older than the retention period are dropped, as are the
+ * expired rows of the default partition. Rows of a table created before partitioning, which
+ * {@code schema-postgres.sql} renames to {@code endpoint_hit_unpartitioned}, are copied over on startup by
+ * {@link UnpartitionedHitMigration}.
+ * On H2 the table is a single heap and retention falls back to a plain DELETE.
+ * Retention applies to raw hits only; rollups, sketches and per-uri counters keep their lifetime totals.
+ */
+@Slf4j
+@Service
+public class HitPartitionService {
+    private static final DateTimeFormatter NAME_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Pattern PARTITION_NAME = Pattern.compile("endpoint_hit_(\\d{8})_(\\d{8})");
+
+    private final RollupGranularity granularity;
+    private final int premake;
+    private final int retentionDays;
+    private final HitPartitionRepository hitPartitionRepository;
+    private final SqlDialect sqlDialect;
+    private final UnpartitionedHitMigration unpartitionedHitMigration;
+
+    public HitPartitionService(@Value("${stats.partition.granularity:MONTH}") RollupGranularity granularity,
+                               @Value("${stats.partition.premake:3}") int premake,
+                               @Value("${stats.retention.days:0}") int retentionDays,
+                               HitPartitionRepository hitPartitionRepository,
+                               SqlDialect sqlDialect,
+                               UnpartitionedHitMigration unpartitionedHitMigration) {
+        if (granularity != RollupGranularity.MONTH && granularity != RollupGranularity.DAY) {
+            throw new IllegalArgumentException("endpoint_hit can be partitioned by MONTH or DAY, not " + granularity);
+        }
+        this.granularity = granularity;
+        this.premake = premake;
+        this.retentionDays = retentionDays;
+        this.hitPartitionRepository = hitPartitionRepository;
+        this.sqlDialect = sqlDialect;
+        this.unpartitionedHitMigration = unpartitionedHitMigration;
+    }
+
+    @PostConstruct
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 5 0 * * *}")
+    public void maintain() {
+        if (sqlDialect.isPostgres()) {
+            migrateUnpartitioned();
+            createPartitions(granularity.floor(LocalDateTime.now()), premake);
+        }
+        if (retentionDays > 0) {
+            applyRetention(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+        }
+    }
+
+    private void migrateUnpartitioned() {
+        if (!hitPartitionRepository.tableExists(HitPartitionRepository.UNPARTITIONED)) {
+            return;
+        }
+        Map<String, Object> span = hitPartitionRepository.findUnpartitionedSpan();
+        if (span.get("first") != null) {
+            // Partitions for every row first, so none of them ends up in the default partition.
+            LocalDateTime from = granularity.floor(((Timestamp) span.get("first")).toLocalDateTime());
+            LocalDateTime last = ((Timestamp) span.get("last")).toLocalDateTime();
+            int ahead = 0;
+            for (LocalDateTime at = granularity.next(from); !at.isAfter(last); at = granularity.next(at)) {
+                ahead++;
+            }
+            createPartitions(from, ahead);
+        }
+        unpartitionedHitMigration.migrate();
+    }
+
+    /**
+     * Creates the partition starting at {@code from} and the {@code ahead} following ones, skipping ranges an
+     * existing partition already overlaps (one of another granularity, for instance). Rows of the new ranges
+     * that sit in the default partition are moved into them.
+     */
+    private void createPartitions(LocalDateTime from, int ahead) {
+        List<LocalDateTime[]> existing = new ArrayList<>();
+        for (String name : hitPartitionRepository.findPartitionNames()) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                existing.add(new LocalDateTime[]{parse(matcher.group(1)), parse(matcher.group(2))});
+            }
+        }
+        for (int i = 0; i <= ahead; i++) {
+            LocalDateTime to = granularity.next(from);
+            if (!overlaps(existing, from, to)) {
+                String name = "endpoint_hit_" + NAME_DATE.format(from) + "_" + NAME_DATE.format(to);
+                try {
+                    hitPartitionRepository.createPartition(name, from, to);
+                    existing.add(new LocalDateTime[]{from, to});
+                } catch (DataAccessException e) {
+                    log.error("Could not create partition {}: {}", name, e.getMostSpecificCause().getMessage());
+                    throw e;
+                }
+            }
+            from = to;
+        }
+    }
+
+    private static boolean overlaps(List<LocalDateTime[]> ranges, LocalDateTime from, LocalDateTime to) {
+        for (LocalDateTime[] range : ranges) {
+            if (range[0].isBefore(to) && from.isBefore(range[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void applyRetention(LocalDateTime cutoff) {
+        if (!sqlDialect.isPostgres()) {
+            int deleted = hitPartitionRepository.deleteHitsBefore(cutoff);
+            log.info("Retention removed {} hits created before {}", deleted, cutoff);
+            return;
+        }
+        Set<String> expired = new TreeSet<>();
+        for (String name : hitPartitionRepository.findPartitionNames()) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches() && !parse(matcher.group(2)).isAfter(cutoff)) {
+                expired.add(name);
+            }
+        }
+        for (String name : expired) {
+            hitPartitionRepository.dropPartition(name);
+            log.info("Retention dropped partition {}", name);
+        }
+        int deleted = hitPartitionRepository.deleteDefaultPartitionHitsBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Retention removed {} hits of the default partition created before {}", deleted, cutoff);
+        }
+    }
+
+    private static LocalDateTime parse(String date) {
+        try {
+            return LocalDate.parse(date, NAME_DATE).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.MAX;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.RangeCover;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.RollupKey;
+import ru.practicum.model.RollupSegment;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.ViewStats;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.StatsRepository;
+import ru.practicum.repository.TopStatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains per-minute, per-hour and per-day hit counts of every (app, uri) and answers non-unique
+ * statistics from them: the requested range is covered by the coarsest whole buckets that fit,
+ * and only the ragged sub-minute edges are counted from raw {@code endpoint_hit} rows.
+ */
+@Slf4j
+@Service
+public class HitRollupService {
+    private static final List<RollupGranularity> LEVELS =
+            List.of(RollupGranularity.DAY, RollupGranularity.HOUR, RollupGranularity.MINUTE);
+
+    private final boolean enabled;
+    private final HitRollupRepository hitRollupRepository;
+    private final StatsRepository statsRepository;
+    private final TopStatsRepository topStatsRepository;
+
+    public HitRollupService(@Value("${stats.rollup.enabled:true}") boolean enabled,
+                            HitRollupRepository hitRollupRepository,
+                            StatsRepository statsRepository,
+                            TopStatsRepository topStatsRepository) {
+        this.enabled = enabled;
+        this.hitRollupRepository = hitRollupRepository;
+        this.statsRepository = statsRepository;
+        this.topStatsRepository = topStatsRepository;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(List<EndpointHit> hits) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+        Map<RollupKey, Long> deltas = new TreeMap<>(RollupKey.STORAGE_ORDER);
+        for (EndpointHit hit : hits) {
+            for (RollupGranularity granularity : LEVELS) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getCreated()), hit.getAppId(), hit.getUriId());
+                deltas.merge(key, (long) hit.getHits(), Long::sum);
+            }
+        }
+        hitRollupRepository.increment(deltas);
+    }
+
+    /**
+     * Hit counts per (app, uri) for the half-open range [from, to), sorted by hits descending.
+     */
+    public List<ViewStats> getStatistics(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        return sumHits(from, to, uriIds).entrySet().stream()
+                .flatMap(app -> app.getValue().entrySet().stream()
+                        .map(uri -> new ViewStats(app.getKey(), uri.getKey(), uri.getValue())))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The {@code limit} (app, uri) pairs with most hits in [from, to) among uris starting with {@code prefix}
+     * (all uris when it is null), sorted by hits descending. Rollup buckets and raw edges are summed, sorted and
+     * cut in one query, so the work outside the database scales with the limit, not with the number of uris.
+     */
+    public List<ViewStats> getTopStatistics(LocalDateTime from, LocalDateTime to, String prefix, int limit) {
+        RangeCover cover = RangeCover.of(from, to, LEVELS);
+        return topStatsRepository.findTop(cover.getSegments(), cover.getRawRanges(), prefix, limit);
+    }
+
+    private Map<Integer, Map<Integer, Long>> sumHits(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        RangeCover cover = RangeCover.of(from, to, LEVELS);
+        List<RollupSegment> segments = cover.getSegments();
+        log.debug("Range [{}, {}) covered by {} rollup segments and {} raw ranges",
+                from, to, segments.size(), cover.getRawRanges().size());
+
+        Map<Integer, Map<Integer, Long>> hitsByAppAndUri = new LinkedHashMap<>();
+        if (!segments.isEmpty()) {
+            hitRollupRepository.sumHits(segments, uriIds).forEach(stats -> add(hitsByAppAndUri, stats));
+        }
+        for (TimeRange range : cover.getRawRanges()) {
+            List<ViewStats> edge = uriIds.isEmpty() ?
+                    statsRepository.countHitsInHalfOpenRange(range.getFrom(), range.getTo()) :
+                    statsRepository.countHitsInHalfOpenRangeWithUris(range.getFrom(), range.getTo(), uriIds);
+            edge.forEach(stats -> add(hitsByAppAndUri, stats));
+        }
+        return hitsByAppAndUri;
+    }
+
+    private static void add(Map<Integer, Map<Integer, Long>> hitsByAppAndUri, ViewStats stats) {
+        hitsByAppAndUri.computeIfAbsent(stats.getAppId(), app -> new LinkedHashMap<>())
+                .merge(stats.getUriId(), stats.getHits(), Long::sum);
+    }
+}
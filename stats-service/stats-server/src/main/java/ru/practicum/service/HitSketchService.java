@@ -0,0 +1,94 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.RangeCover;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.RollupKey;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.ViewStats;
+import ru.practicum.repository.HitSketchRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Approximate unique-visitor counts backed by per-month and per-day {@link HyperLogLog} sketches of every (app, uri).
+ * A range is answered by merging the sketches of the whole months and days it covers and feeding the IPs
+ * of the sub-day edges straight from raw hits, so the error bound of a single sketch holds for any range.
+ */
+@Slf4j
+@Service
+public class HitSketchService {
+    private static final List<RollupGranularity> LEVELS = List.of(RollupGranularity.MONTH, RollupGranularity.DAY);
+
+    private final boolean enabled;
+    private final HitSketchRepository hitSketchRepository;
+
+    public HitSketchService(@Value("${stats.sketch.enabled:false}") boolean enabled,
+                            HitSketchRepository hitSketchRepository) {
+        this.enabled = enabled;
+        this.hitSketchRepository = hitSketchRepository;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(List<EndpointHit> hits) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>(RollupKey.STORAGE_ORDER);
+        for (EndpointHit hit : hits) {
+            for (RollupGranularity granularity : LEVELS) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getCreated()), hit.getAppId(), hit.getUriId());
+                sketches.computeIfAbsent(key, k -> new HyperLogLog()).offer(hit.getIp());
+            }
+        }
+        sketches.forEach((key, sketch) -> {
+            if (!hitSketchRepository.insertIfAbsent(key, sketch.toBytes())) {
+                HyperLogLog stored = HyperLogLog.fromBytes(hitSketchRepository.findForUpdate(key));
+                stored.merge(sketch);
+                hitSketchRepository.update(key, stored.toBytes());
+            }
+        });
+    }
+
+    /**
+     * Estimated unique IPs per (app, uri) for the half-open range [from, to), sorted by hits descending.
+     */
+    public List<ViewStats> getUniqueStatistics(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        RangeCover cover = RangeCover.of(from, to, LEVELS);
+        Map<Integer, Map<Integer, HyperLogLog>> sketches = new LinkedHashMap<>();
+        if (!cover.getSegments().isEmpty()) {
+            hitSketchRepository.findSketches(cover.getSegments(), uriIds, rs ->
+                    sketch(sketches, rs.getInt("app_id"), rs.getInt("uri_id"))
+                            .merge(HyperLogLog.fromBytes(rs.getBytes("registers"))));
+        }
+        for (TimeRange range : cover.getRawRanges()) {
+            hitSketchRepository.findVisitors(range, uriIds, rs ->
+                    sketch(sketches, rs.getInt("app_id"), rs.getInt("uri_id")).offer(rs.getBytes("ip")));
+        }
+        log.debug("Estimated unique visitors of {} apps for [{}, {}) from {} sketch segments and {} raw ranges",
+                sketches.size(), from, to, cover.getSegments().size(), cover.getRawRanges().size());
+
+        return sketches.entrySet().stream()
+                .flatMap(app -> app.getValue().entrySet().stream()
+                        .map(uri -> new ViewStats(app.getKey(), uri.getKey(), uri.getValue().cardinality())))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static HyperLogLog sketch(Map<Integer, Map<Integer, HyperLogLog>> sketches, int appId, int uriId) {
+        return sketches.computeIfAbsent(appId, a -> new LinkedHashMap<>()).computeIfAbsent(uriId, u -> new HyperLogLog());
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.HitBatchRepository;
+
+import java.util.List;
+
+/**
+ * Single write path for hits: both the synchronous {@code /hit} call and the ingestion buffer end up here.
+ */
+@Service
+@RequiredArgsConstructor
+public class HitWriter {
+    private final HitBatchRepository hitBatchRepository;
+    private final HitRollupService hitRollupService;
+    private final HitSketchService hitSketchService;
+    private final UriCounterService uriCounterService;
+    private final RecentHitWindow recentHitWindow;
+    private final StatsResultCache statsResultCache;
+
+    @Transactional
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        hitBatchRepository.insertAll(hits);
+        hitRollupService.record(hits);
+        hitSketchService.record(hits);
+        uriCounterService.record(hits);
+        afterCommit(() -> {
+            recentHitWindow.record(hits);
+            statsResultCache.record(hits);
+        });
+    }
+
+    // In-memory views must never show hits that end up rolled back.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * In-process per-minute hit counters of every (app, uri) over the last {@code minutes} minutes.
+ * Counters are striped {@link LongAdder}s in concurrent maps, so ingestion threads never lock each other.
+ * A non-unique query is answered here when its start is on a minute boundary inside the window and its end
+ * is not before the newest hit seen; anything else is a miss and goes to the database.
+ * The window only knows the hits written by this instance, so it is off by default and may be enabled
+ * only when a single stats-server instance writes to the database.
+ */
+@Slf4j
+@Component
+public class RecentHitWindow {
+    private static final RollupGranularity MINUTE = RollupGranularity.MINUTE;
+
+    private final boolean enabled;
+    private final int minutes;
+    private final int maxEntries;
+    private final ConcurrentNavigableMap<LocalDateTime, Map<Long, LongAdder>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicInteger entries = new AtomicInteger();
+    // Hits before this minute were either written before startup or evicted.
+    private final AtomicReference<LocalDateTime> evictedBefore;
+    private final AtomicReference<LocalDateTime> lastCreated = new AtomicReference<>(LocalDateTime.MIN);
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public RecentHitWindow(@Value("${stats.window.enabled:false}") boolean enabled,
+                           @Value("${stats.window.minutes:60}") int minutes,
+                           @Value("${stats.window.max-entries:100000}") int maxEntries,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minutes = minutes;
+        this.maxEntries = maxEntries;
+        this.evictedBefore = new AtomicReference<>(MINUTE.ceil(LocalDateTime.now()));
+
+        Gauge.builder("stats.window.entries", entries, AtomicInteger::get).register(meterRegistry);
+        this.hitCounter = meterRegistry.counter("stats.window.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("stats.window.requests", "result", "miss");
+    }
+
+    /**
+     * Counts committed hits; {@link HitWriter} calls it after commit so the window never shows rolled back hits.
+     */
+    public void record(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime floor = floor();
+        for (EndpointHit hit : hits) {
+            if (hit.getCreated().isBefore(floor)) {
+                continue;
+            }
+            buckets.computeIfAbsent(MINUTE.floor(hit.getCreated()), minute -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key(hit.getAppId(), hit.getUriId()), key -> {
+                        entries.incrementAndGet();
+                        return new LongAdder();
+                    })
+                    .add(hit.getHits());
+            lastCreated.accumulateAndGet(hit.getCreated(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        evict();
+    }
+
+    /**
+     * Hit counts per (app, uri) for [start, end], sorted by hits descending, if the window holds every hit of the range.
+     */
+    public Optional<List<ViewStats>> getStatistics(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        if (!start.equals(MINUTE.floor(start)) || start.isBefore(floor()) || end.isBefore(lastCreated.get())) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        Set<Integer> filter = new HashSet<>(uriIds);
+        Map<Long, Long> hits = new HashMap<>();
+        for (Map<Long, LongAdder> bucket : buckets.subMap(start, true, end, true).values()) {
+            bucket.forEach((key, counter) -> {
+                if (filter.isEmpty() || filter.contains(uriId(key))) {
+                    hits.merge(key, counter.sum(), Long::sum);
+                }
+            });
+        }
+        if (start.isBefore(floor())) {
+            // Buckets of the range were evicted while they were being summed.
+            missCounter.increment();
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        return Optional.of(hits.entrySet().stream()
+                .map(entry -> new ViewStats(appId(entry.getKey()), uriId(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList()));
+    }
+
+    private void evict() {
+        raiseFloor(MINUTE.floor(LocalDateTime.now()).minusMinutes(minutes));
+        Map.Entry<LocalDateTime, Map<Long, LongAdder>> oldest;
+        while (entries.get() > maxEntries && (oldest = buckets.firstEntry()) != null) {
+            log.debug("Window holds {} entries, evicting minute {}", entries.get(), oldest.getKey());
+            raiseFloor(oldest.getKey().plusMinutes(1));
+        }
+    }
+
+    private void raiseFloor(LocalDateTime floor) {
+        LocalDateTime current = evictedBefore.accumulateAndGet(floor, (a, b) -> a.isAfter(b) ? a : b);
+        Map.Entry<LocalDateTime, Map<Long, LongAdder>> oldest;
+        while ((oldest = buckets.firstEntry()) != null && oldest.getKey().isBefore(current)) {
+            if (buckets.remove(oldest.getKey(), oldest.getValue())) {
+                entries.addAndGet(-oldest.getValue().size());
+            }
+        }
+    }
+
+    private LocalDateTime floor() {
+        LocalDateTime expiry = MINUTE.floor(LocalDateTime.now()).minusMinutes(minutes);
+        LocalDateTime evicted = evictedBefore.get();
+        return evicted.isAfter(expiry) ? evicted : expiry;
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << Integer.SIZE) | (uriId & 0xffffffffL);
+    }
+
+    private static int appId(long key) {
+        return (int) (key >>> Integer.SIZE);
+    }
+
+    private static int uriId(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * LRU cache of finished {@code /stats} answers keyed by (start, end, uri ids, unique, approximate).
+ * Every committed batch of hits advances an ingestion watermark of each uri it touches; an entry older than
+ * {@code max-staleness-ms} is served only while none of its uris has moved past the watermark it was computed at.
+ * Starts before the first known hit and ends after the last one are normalized, so the sliding
+ * "from long ago until far in the future" ranges of ewm-service map to one entry.
+ * Watermarks only see the writes of this instance, so the cache is off by default and may be enabled
+ * only when a single stats-server instance writes to the database.
+ */
+@Component
+public class StatsResultCache {
+    private final boolean enabled;
+    private final long maxStalenessNanos;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Integer, Long> uriWatermarks = new ConcurrentHashMap<>();
+    private final AtomicReference<LocalDateTime> earliestCreated;
+    private final AtomicReference<LocalDateTime> latestCreated;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public StatsResultCache(@Value("${stats.cache.enabled:false}") boolean enabled,
+                            @Value("${stats.cache.max-entries:10000}") int maxEntries,
+                            @Value("${stats.cache.max-staleness-ms:1000}") long maxStalenessMs,
+                            StatsRepository statsRepository,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        // Retention only ever raises the true bounds, so bounds read once at startup stay safe for normalizing.
+        this.earliestCreated = new AtomicReference<>(enabled ? statsRepository.findEarliestCreated() : null);
+        this.latestCreated = new AtomicReference<>(enabled ? statsRepository.findLatestCreated() : null);
+
+        Gauge.builder("stats.cache.size", entries, Map::size).register(meterRegistry);
+        this.hitCounter = meterRegistry.counter("stats.cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("stats.cache.requests", "result", "miss");
+    }
+
+    /**
+     * Returns the cached answer if it is still valid, otherwise computes, stores and returns a new one.
+     */
+    public List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                                  boolean approximate, Supplier<List<ViewStatsDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(normalizeStart(start), normalizeEnd(end),
+                uriIds.stream().distinct().sorted().collect(Collectors.toList()), unique, approximate);
+        Entry entry = entries.get(key);
+        if (entry != null && isValid(entry, key.getUriIds())) {
+            hitCounter.increment();
+            return entry.getStats();
+        }
+        missCounter.increment();
+        // Read before computing: a batch committed meanwhile leaves the entry behind its watermark.
+        long watermark = sequence.get();
+        long computedAt = System.nanoTime();
+        List<ViewStatsDto> stats = List.copyOf(loader.get());
+        entries.put(key, new Entry(stats, watermark, computedAt));
+        return stats;
+    }
+
+    /**
+     * Advances the watermarks of the uris of committed hits; {@link HitWriter} calls it after commit.
+     */
+    public void record(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        long watermark = sequence.incrementAndGet();
+        for (EndpointHit hit : hits) {
+            uriWatermarks.put(hit.getUriId(), watermark);
+            earliestCreated.accumulateAndGet(hit.getCreated(), (a, b) -> a == null || b.isBefore(a) ? b : a);
+            latestCreated.accumulateAndGet(hit.getCreated(), (a, b) -> a == null || b.isAfter(a) ? b : a);
+        }
+    }
+
+    private boolean isValid(Entry entry, List<Integer> uriIds) {
+        if (System.nanoTime() - entry.getComputedNanos() < maxStalenessNanos) {
+            return true;
+        }
+        if (uriIds.isEmpty()) {
+            return sequence.get() <= entry.getWatermark();
+        }
+        return uriIds.stream().allMatch(uriId -> uriWatermarks.getOrDefault(uriId, 0L) <= entry.getWatermark());
+    }
+
+    private LocalDateTime normalizeStart(LocalDateTime start) {
+        LocalDateTime earliest = earliestCreated.get();
+        return earliest == null || !start.isAfter(earliest) ? LocalDateTime.MIN : start;
+    }
+
+    private LocalDateTime normalizeEnd(LocalDateTime end) {
+        LocalDateTime latest = latestCreated.get();
+        return latest == null || !end.isBefore(latest) ? LocalDateTime.MAX : end;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final List<Integer> uriIds;
+        private final boolean unique;
+        private final boolean approximate;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final List<ViewStatsDto> stats;
+        private final long watermark;
+        private final long computedNanos;
+    }
+}
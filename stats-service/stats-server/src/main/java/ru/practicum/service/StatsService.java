@@ -1,13 +1,59 @@
 package ru.practicum.service;
 
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HistogramBucketDto;
+import ru.practicum.dto.StatsCountQueryDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.WindowStatsDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     EndpointHitDto save(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStatistics(String start, String end, List<String> uris, Boolean unique);
+    void saveAll(List<EndpointHitDto> endpointHitDtos);
+
+    List<ViewStatsDto> getStatistics(String start, String end, List<String> uris, Boolean unique, Boolean approximate);
+
+    /**
+     * Same as {@link #getStatistics(String, String, List, Boolean, Boolean)} with the uris taken from the body.
+     */
+    List<ViewStatsDto> getStatistics(StatsQueryDto query);
+
+    /**
+     * Hits of {@code uriPrefix + id} for every id of the query, in the order of the ids; zero for unknown uris.
+     */
+    long[] getHitCounts(StatsCountQueryDto query);
+
+    /**
+     * The {@code limit} (app, uri) pairs with most hits, optionally only uris starting with {@code prefix}.
+     */
+    List<ViewStatsDto> getTopStatistics(String start, String end, Integer limit, String prefix, Boolean unique);
+
+    /**
+     * Hits of one uri per minute, hour or day bucket, with every bucket from the one holding {@code start}
+     * to the one holding {@code end} present; unique counts are included when {@code unique} is set.
+     */
+    List<HistogramBucketDto> getHistogram(String start, String end, String uri, String bucket, Boolean unique);
+
+    /**
+     * Hits per (app, uri) for several windows ending at {@code end} at once, such as {@code 1h}, {@code 7d} or
+     * {@code all}; every window is counted in the same scan. A null {@code end} means now.
+     */
+    List<WindowStatsDto> getWindowStatistics(String end, List<String> windows, List<String> uris, Boolean unique);
+
+    /**
+     * All-time counts of the (app, uri) pairs whose counters changed after the {@code since} watermark,
+     * optionally only of one app and of uris starting with {@code prefix}.
+     */
+    StatsDeltaDto getDelta(Long since, String app, String prefix, Integer limit);
+
+    /**
+     * Exact statistics counted over raw hits and handed to the consumer row by row, sorted by hits descending.
+     */
+    void streamStatistics(String start, String end, List<String> uris, Boolean unique, Consumer<ViewStatsDto> consumer);
 
 }
@@ -1,75 +1,478 @@
 package ru.practicum.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HistogramBucketDto;
+import ru.practicum.dto.StatsCountQueryDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.WindowStatsDto;
+import ru.practicum.exception.IngestionOverloadedException;
 import ru.practicum.exception.InvalidDateFormatException;
+import ru.practicum.exception.InvalidRequestParameterException;
 import ru.practicum.exception.InvalidTimeParameterException;
 import ru.practicum.mapper.EndpointHitMapper;
+import ru.practicum.model.CounterDelta;
+import ru.practicum.model.CounterLookup;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.model.HistogramBucket;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.StatsWindow;
+import ru.practicum.model.TimeRange;
 import ru.practicum.model.ViewStats;
+import ru.practicum.model.WindowStats;
+import ru.practicum.repository.HistogramRepository;
 import ru.practicum.repository.StatsRepository;
+import ru.practicum.repository.TopStatsRepository;
+import ru.practicum.repository.WindowStatsRepository;
 
 import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @Transactional(readOnly = true)
-@RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
     private final StatsRepository statsRepository;
+    private final TopStatsRepository topStatsRepository;
+    private final HistogramRepository histogramRepository;
+    private final WindowStatsRepository windowStatsRepository;
     private final EndpointHitMapper endpointHitMapper;
+    private final HitWriter hitWriter;
+    private final HitBuffer hitBuffer;
+    private final HitRollupService hitRollupService;
+    private final HitSketchService hitSketchService;
+    private final UriCounterService uriCounterService;
+    private final HitDictionary hitDictionary;
+    private final RecentHitWindow recentHitWindow;
+    private final StatsResultCache statsResultCache;
+    private final int maxTopLimit;
+    private final int maxHistogramBuckets;
+    private final int maxDeltaLimit;
+    private final int maxWindows;
+    private final int maxHitBatchSize;
     private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    // Stored timestamps have microsecond precision, so [start, end] equals [start, end + 1 µs).
+    private static final long INCLUSIVE_END_NANOS = 1_000;
+    private static final Pattern WINDOW = Pattern.compile("(\\d{1,6})([mhd])");
+    private static final String ALL_TIME = "all";
+    // Most uris one statement binds; longer explicit uri lists are counted a chunk at a time.
+    private static final int URI_CHUNK_SIZE = 1000;
+    // Rows of a streamed report mapped together; the fetch size of the stream queries.
+    private static final int STREAM_BLOCK_SIZE = 500;
+    private static final List<RollupGranularity> HISTOGRAM_BUCKETS =
+            List.of(RollupGranularity.MINUTE, RollupGranularity.HOUR, RollupGranularity.DAY);
+
+    public StatsServiceImpl(StatsRepository statsRepository,
+                            TopStatsRepository topStatsRepository,
+                            HistogramRepository histogramRepository,
+                            WindowStatsRepository windowStatsRepository,
+                            EndpointHitMapper endpointHitMapper,
+                            HitWriter hitWriter,
+                            HitBuffer hitBuffer,
+                            HitRollupService hitRollupService,
+                            HitSketchService hitSketchService,
+                            UriCounterService uriCounterService,
+                            HitDictionary hitDictionary,
+                            RecentHitWindow recentHitWindow,
+                            StatsResultCache statsResultCache,
+                            @Value("${stats.top.max-limit:1000}") int maxTopLimit,
+                            @Value("${stats.histogram.max-buckets:10000}") int maxHistogramBuckets,
+                            @Value("${stats.delta.max-limit:10000}") int maxDeltaLimit,
+                            @Value("${stats.window.max-windows:10}") int maxWindows,
+                            @Value("${stats.hit-batch.max-size:1000}") int maxHitBatchSize) {
+        this.statsRepository = statsRepository;
+        this.topStatsRepository = topStatsRepository;
+        this.histogramRepository = histogramRepository;
+        this.windowStatsRepository = windowStatsRepository;
+        this.endpointHitMapper = endpointHitMapper;
+        this.hitWriter = hitWriter;
+        this.hitBuffer = hitBuffer;
+        this.hitRollupService = hitRollupService;
+        this.hitSketchService = hitSketchService;
+        this.uriCounterService = uriCounterService;
+        this.hitDictionary = hitDictionary;
+        this.recentHitWindow = recentHitWindow;
+        this.statsResultCache = statsResultCache;
+        this.maxTopLimit = maxTopLimit;
+        this.maxHistogramBuckets = maxHistogramBuckets;
+        this.maxDeltaLimit = maxDeltaLimit;
+        this.maxWindows = maxWindows;
+        this.maxHitBatchSize = maxHitBatchSize;
+    }
 
     @Transactional
     @Override
     public EndpointHitDto save(EndpointHitDto endpointHitDto) {
-        log.info("Received hit input: [{}]", endpointHitDto);
+        log.debug("Received hit input: [{}]", endpointHitDto);
         EndpointHit endpointHit = endpointHitMapper.toEndpointHit(endpointHitDto);
-        EndpointHit savedEntry = statsRepository.save(endpointHit);
-        log.info("Saved hit object in repository: [{}]", savedEntry);
-        return endpointHitMapper.toEndpointHitDto(savedEntry);
+        if (hitBuffer.isEnabled()) {
+            if (!hitBuffer.offer(endpointHit)) {
+                throw new IngestionOverloadedException("Hit buffer is full, retry later");
+            }
+        } else {
+            hitWriter.write(List.of(endpointHit));
+        }
+        return endpointHitMapper.toEndpointHitDto(endpointHit);
+    }
+
+    @Transactional
+    @Override
+    public void saveAll(List<EndpointHitDto> endpointHitDtos) {
+        log.debug("Received batch of {} hits", endpointHitDtos.size());
+        if (endpointHitDtos.size() > maxHitBatchSize) {
+            throw new InvalidRequestParameterException("A batch holds at most " + maxHitBatchSize + " hits, got " +
+                    endpointHitDtos.size());
+        }
+        hitWriter.write(endpointHitDtos.stream()
+                .map(endpointHitMapper::toEndpointHit)
+                .collect(Collectors.toList()));
     }
 
     @Override
-    public List<ViewStatsDto> getStatistics(String startDate, String endDate, List<String> uris, Boolean unique) {
+    public List<ViewStatsDto> getStatistics(String startDate, String endDate, List<String> uris, Boolean unique,
+                                            Boolean approximate) {
         LocalDateTime start = parseTime(startDate);
         LocalDateTime end = parseTime(endDate);
-        if (end.isBefore(start)) {
-            log.info("Error detected, start time {}, end time {}", start, end);
-            throw new InvalidTimeParameterException("End time cannot be before start time");
-        }
+        checkRange(start, end);
 
         uris = uris == null ? new ArrayList<>() : uris; // Обработка uris == null
+        List<Integer> uriIds = hitDictionary.findUriIds(uris);
+        if (!uris.isEmpty() && uriIds.isEmpty()) {
+            log.debug("None of the uris {} has ever been hit", uris);
+            return List.of();
+        }
+
+        boolean uniqueIp = Boolean.TRUE.equals(unique);
+        return statsResultCache.get(start, end, uriIds, uniqueIp, Boolean.TRUE.equals(approximate),
+                () -> computeStatistics(start, end, uriIds, uniqueIp, approximate));
+    }
+
+    @Override
+    public List<ViewStatsDto> getStatistics(StatsQueryDto query) {
+        List<String> uris = new ArrayList<>();
+        if (query.getUris() != null) {
+            uris.addAll(query.getUris());
+        }
+        if (query.getIds() != null && !query.getIds().isEmpty()) {
+            if (query.getUriPrefix() == null) {
+                throw new InvalidRequestParameterException("Ids need a uriPrefix to be turned into uris");
+            }
+            query.getIds().forEach(id -> uris.add(query.getUriPrefix() + id));
+        }
+        return getStatistics(query.getStart(), query.getEnd(), uris, query.getUnique(), query.getApproximate());
+    }
+
+    @Override
+    public long[] getHitCounts(StatsCountQueryDto query) {
+        if (query.getUriPrefix() == null) {
+            throw new InvalidRequestParameterException("uriPrefix is required");
+        }
+        List<Long> ids = query.getIds() == null ? List.of() : query.getIds();
+        long[] counts = new long[ids.size()];
+        if (ids.isEmpty()) {
+            return counts;
+        }
+
+        List<String> uris = ids.stream()
+                .map(id -> query.getUriPrefix() + id)
+                .collect(Collectors.toList());
+        Map<String, Long> hits = new HashMap<>();
+        for (ViewStatsDto stats : getStatistics(query.getStart(), query.getEnd(), uris, query.getUnique(), false)) {
+            if (query.getApp() == null || query.getApp().equals(stats.getApp())) {
+                hits.merge(stats.getUri(), stats.getHits(), Long::sum);
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = hits.getOrDefault(uris.get(i), 0L);
+        }
+        return counts;
+    }
+
+    @Override
+    public StatsDeltaDto getDelta(Long since, String app, String prefix, Integer limit) {
+        if (!uriCounterService.isEnabled()) {
+            throw new InvalidRequestParameterException("The delta feed needs stats.counter.enabled");
+        }
+        if (since == null || since < 0) {
+            throw new InvalidRequestParameterException("Since must not be negative");
+        }
+        if (limit == null || limit < 1 || limit > maxDeltaLimit) {
+            throw new InvalidRequestParameterException("Limit must be between 1 and " + maxDeltaLimit);
+        }
+
+        CounterDelta delta = uriCounterService.findChanged(since, app, prefix, limit);
+        return StatsDeltaDto.builder()
+                .watermark(delta.getWatermark())
+                .more(delta.isMore())
+                .counts(delta.getChanges().stream()
+                        .map(endpointHitMapper::toUriCountDto)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private List<ViewStatsDto> computeStatistics(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                                 boolean uniqueIp, Boolean approximate) {
+        List<ViewStats> stats;
+        if (uriIds.size() <= URI_CHUNK_SIZE) {
+            stats = countStatistics(start, end, uriIds, uniqueIp, approximate);
+        } else {
+            // Rows are grouped by uri, so the rows of distinct chunks never overlap and only need re-sorting.
+            List<Integer> distinctIds = uriIds.stream().distinct().collect(Collectors.toList());
+            stats = new ArrayList<>();
+            for (int i = 0; i < distinctIds.size(); i += URI_CHUNK_SIZE) {
+                List<Integer> chunk = distinctIds.subList(i, Math.min(i + URI_CHUNK_SIZE, distinctIds.size()));
+                stats.addAll(countStatistics(start, end, chunk, uniqueIp, approximate));
+            }
+            stats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        }
+        return stats.stream()
+                .map(endpointHitMapper::toViewStatsDto)
+                .collect(Collectors.toList());
+    }
+
+    private List<ViewStats> countStatistics(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                            boolean uniqueIp, Boolean approximate) {
+        Optional<List<ViewStats>> recent = uniqueIp ? Optional.empty() : recentHitWindow.getStatistics(start, end, uriIds);
+        List<ViewStats> stats;
+        if (recent.isPresent()) {
+            log.debug("Range [{}, {}] answered from the recent hit window", start, end);
+            stats = recent.get();
+        } else if (uriCounterService.isEnabled()) {
+            CounterLookup lookup = uriCounterService.lookup(start, end, uriIds, uniqueIp);
+            log.debug("{} (app, uri) pairs answered from counters, {} uris left to scan",
+                    lookup.getCovered().size(), lookup.getUncoveredUris().size());
+            // Without uris the scan stays unfiltered: naming every uncovered uri would grow with the dictionary.
+            // complete() keeps only the uncovered pairs of its result either way.
+            List<Integer> scanUriIds = uriIds.isEmpty() ? List.of() : new ArrayList<>(lookup.getUncoveredUris());
+            stats = lookup.complete(lookup.isComplete() ? List.of() :
+                    getStatistics(start, end, scanUriIds, uniqueIp, approximate));
+        } else {
+            stats = getStatistics(start, end, uriIds, uniqueIp, approximate);
+        }
+        return stats;
+    }
+
+    @Override
+    public List<ViewStatsDto> getTopStatistics(String startDate, String endDate, Integer limit, String prefix,
+                                               Boolean unique) {
+        LocalDateTime start = parseTime(startDate);
+        LocalDateTime end = parseTime(endDate);
+        checkRange(start, end);
+        if (limit == null || limit < 1 || limit > maxTopLimit) {
+            throw new InvalidRequestParameterException("Limit must be between 1 and " + maxTopLimit);
+        }
+
+        List<ViewStats> top;
+        if (Boolean.TRUE.equals(unique)) {
+            top = topStatsRepository.findTopUnique(start, end, prefix, limit);
+        } else if (hitRollupService.isEnabled()) {
+            top = hitRollupService.getTopStatistics(start, end.plusNanos(INCLUSIVE_END_NANOS), prefix, limit);
+        } else {
+            top = topStatsRepository.findTop(List.of(), List.of(new TimeRange(start, end.plusNanos(INCLUSIVE_END_NANOS))),
+                    prefix, limit);
+        }
+        return top.stream()
+                .map(endpointHitMapper::toViewStatsDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<HistogramBucketDto> getHistogram(String startDate, String endDate, String uri, String bucket,
+                                                 Boolean unique) {
+        LocalDateTime start = parseTime(startDate);
+        LocalDateTime end = parseTime(endDate);
+        checkRange(start, end);
+        RollupGranularity granularity = parseBucket(bucket);
 
-        return Boolean.TRUE.equals(unique) ?
-                getStatisticsWithUniqueIp(start, end, uris).stream()
-                        .map(endpointHitMapper::toViewStatsDto)
-                        .collect(Collectors.toList()) :
-                getAllStatistics(start, end, uris).stream()
-                        .map(endpointHitMapper::toViewStatsDto)
-                        .collect(Collectors.toList());
+        LocalDateTime from = granularity.floor(start);
+        LocalDateTime to = granularity.next(granularity.floor(end));
+        List<LocalDateTime> bucketStarts = new ArrayList<>();
+        for (LocalDateTime time = from; time.isBefore(to); time = granularity.next(time)) {
+            if (bucketStarts.size() == maxHistogramBuckets) {
+                throw new InvalidRequestParameterException("Histogram cannot have more than " + maxHistogramBuckets +
+                        " buckets, use a coarser bucket or a shorter range");
+            }
+            bucketStarts.add(time);
+        }
+
+        boolean uniqueIp = Boolean.TRUE.equals(unique);
+        Map<LocalDateTime, HistogramBucket> counted = new HashMap<>();
+        List<Integer> uriIds = hitDictionary.findUriIds(List.of(uri));
+        if (!uriIds.isEmpty()) {
+            List<HistogramBucket> buckets = uniqueIp || !hitRollupService.isEnabled() ?
+                    histogramRepository.countHits(granularity, from, to, uriIds.get(0)) :
+                    histogramRepository.sumRollups(granularity, from, to, uriIds.get(0));
+            buckets.forEach(b -> counted.put(b.getStart(), b));
+        }
+        return bucketStarts.stream()
+                .map(time -> counted.getOrDefault(time, new HistogramBucket(time, 0, uniqueIp ? 0L : null)))
+                .map(b -> endpointHitMapper.toHistogramBucketDto(b, uniqueIp))
+                .collect(Collectors.toList());
     }
 
-    private List<ViewStats> getStatisticsWithUniqueIp(LocalDateTime start, LocalDateTime end, List<String> uris) {
-        return uris.isEmpty() ? statsRepository.getStatisticsWithUniqueIp(start, end) : statsRepository.getStatisticsWithUniqueIpAndUris(start, end, uris);
+    @Override
+    public List<WindowStatsDto> getWindowStatistics(String endDate, List<String> windows, List<String> uris,
+                                                    Boolean unique) {
+        LocalDateTime end = endDate == null ? LocalDateTime.now().withNano(0) : parseTime(endDate);
+        if (windows == null || windows.isEmpty() || windows.size() > maxWindows) {
+            throw new InvalidRequestParameterException("Between 1 and " + maxWindows + " windows must be given");
+        }
+        // Labels key the counts of each row, so a repeated one would silently swallow a column.
+        Set<String> labels = new HashSet<>();
+        for (String window : windows) {
+            if (!labels.add(window)) {
+                throw new InvalidRequestParameterException("Window is given more than once: " + window);
+            }
+        }
+        List<StatsWindow> statsWindows = windows.stream()
+                .map(window -> parseWindow(window, end))
+                .collect(Collectors.toList());
+
+        uris = uris == null ? new ArrayList<>() : uris;
+        List<Integer> uriIds = hitDictionary.findUriIds(uris);
+        if (!uris.isEmpty() && uriIds.isEmpty()) {
+            return List.of();
+        }
 
+        // Rows are sorted by the widest window, which holds the most hits.
+        int widest = 0;
+        for (int i = 1; i < statsWindows.size(); i++) {
+            LocalDateTime from = statsWindows.get(i).getFrom();
+            LocalDateTime widestFrom = statsWindows.get(widest).getFrom();
+            if (widestFrom != null && (from == null || from.isBefore(widestFrom))) {
+                widest = i;
+            }
+        }
+        int sortColumn = widest;
+        return windowStatsRepository.countHits(statsWindows, end, uriIds, Boolean.TRUE.equals(unique)).stream()
+                .sorted(Comparator.comparingLong((WindowStats stats) -> stats.getHits()[sortColumn]).reversed())
+                .map(stats -> endpointHitMapper.toWindowStatsDto(stats, windows))
+                .collect(Collectors.toList());
     }
 
-    private List<ViewStats> getAllStatistics(LocalDateTime start, LocalDateTime end, List<String> uris) {
-        return uris.isEmpty() ? statsRepository.getAllStatistics(start, end) : statsRepository.getAllStatisticsWithUris(start, end, uris);
+    @Override
+    public void streamStatistics(String startDate, String endDate, List<String> uris, Boolean unique,
+                                 Consumer<ViewStatsDto> consumer) {
+        LocalDateTime start = parseTime(startDate);
+        LocalDateTime end = parseTime(endDate);
+        checkRange(start, end);
+
+        uris = uris == null ? new ArrayList<>() : uris;
+        List<Integer> uriIds = hitDictionary.findUriIds(uris);
+        if (!uris.isEmpty() && uriIds.isEmpty()) {
+            return;
+        }
+
+        boolean uniqueIp = Boolean.TRUE.equals(unique);
+        Stream<ViewStats> stats;
+        if (uriIds.isEmpty()) {
+            stats = uniqueIp ? statsRepository.streamStatisticsWithUniqueIp(start, end) :
+                    statsRepository.streamAllStatistics(start, end);
+        } else {
+            stats = uniqueIp ? statsRepository.streamStatisticsWithUniqueIpAndUris(start, end, uriIds) :
+                    statsRepository.streamAllStatisticsWithUris(start, end, uriIds);
+        }
+        // Names are resolved a fetch-size block at a time, so a cold dictionary costs a query per block, not per row.
+        try (stats) {
+            Iterator<ViewStats> rows = stats.iterator();
+            List<ViewStats> block = new ArrayList<>(STREAM_BLOCK_SIZE);
+            while (rows.hasNext()) {
+                block.add(rows.next());
+                if (block.size() == STREAM_BLOCK_SIZE || !rows.hasNext()) {
+                    endpointHitMapper.toViewStatsDtos(block).forEach(consumer);
+                    block.clear();
+                }
+            }
+        }
+    }
 
+    private List<ViewStats> getStatistics(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                                          Boolean approximate) {
+        return unique ?
+                getStatisticsWithUniqueIp(start, end, uriIds, Boolean.TRUE.equals(approximate)) :
+                getAllStatistics(start, end, uriIds);
+    }
+
+    private List<ViewStats> getStatisticsWithUniqueIp(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                                      boolean approximate) {
+        if (approximate) {
+            if (hitSketchService.isEnabled()) {
+                return hitSketchService.getUniqueStatistics(start, end.plusNanos(INCLUSIVE_END_NANOS), uriIds);
+            }
+            log.debug("Sketches are disabled, answering approximate unique stats exactly");
+        }
+        return uriIds.isEmpty() ? statsRepository.getStatisticsWithUniqueIp(start, end) : statsRepository.getStatisticsWithUniqueIpAndUris(start, end, uriIds);
+
+    }
+
+    private List<ViewStats> getAllStatistics(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        if (hitRollupService.isEnabled()) {
+            return hitRollupService.getStatistics(start, end.plusNanos(INCLUSIVE_END_NANOS), uriIds);
+        }
+        return uriIds.isEmpty() ? statsRepository.getAllStatistics(start, end) : statsRepository.getAllStatisticsWithUris(start, end, uriIds);
+
+    }
+
+    private static StatsWindow parseWindow(String window, LocalDateTime end) {
+        if (ALL_TIME.equalsIgnoreCase(window)) {
+            return new StatsWindow(window, null);
+        }
+        Matcher matcher = WINDOW.matcher(window);
+        if (!matcher.matches()) {
+            throw new InvalidRequestParameterException("Window must be a number followed by m, h or d, or 'all': " +
+                    window);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "m":
+                return new StatsWindow(window, end.minusMinutes(amount));
+            case "h":
+                return new StatsWindow(window, end.minusHours(amount));
+            default:
+                return new StatsWindow(window, end.minusDays(amount));
+        }
+    }
+
+    private static RollupGranularity parseBucket(String bucket) {
+        for (RollupGranularity granularity : HISTOGRAM_BUCKETS) {
+            if (granularity.name().equalsIgnoreCase(bucket)) {
+                return granularity;
+            }
+        }
+        throw new InvalidRequestParameterException("Bucket must be one of minute, hour, day: " + bucket);
+    }
+
+    private void checkRange(LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            log.info("Error detected, start time {}, end time {}", start, end);
+            throw new InvalidTimeParameterException("End time cannot be before start time");
+        }
     }
 
     private LocalDateTime parseTime(String date) {
+        if (date == null) {
+            throw new InvalidDateFormatException("Start and end dates are required");
+        }
         try {
             return LocalDateTime.parse(date, DateTimeFormatter.ofPattern(DATE_FORMAT));
         } catch (DateTimeException exception) {
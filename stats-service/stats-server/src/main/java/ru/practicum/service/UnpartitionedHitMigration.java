@@ -0,0 +1,93 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.exception.InvalidIpAddressException;
+import ru.practicum.exception.InvalidRequestParameterException;
+import ru.practicum.mapper.EndpointHitMapper;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.AggregateRepository;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.repository.HitPartitionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Moves the hits of the plain {@code endpoint_hit} table stats-server used before partitioning, which
+ * {@code schema-postgres.sql} renames to {@code endpoint_hit_unpartitioned}, into the current table: app and uri
+ * are interned into the dictionary and the ip text becomes raw address bytes, as for a posted hit. Rows without
+ * app, uri or time, or with an ip that is not a literal address, are skipped. The copy runs in one transaction and
+ * takes every aggregate off the complete list, so {@link HitBackfillService} rebuilds them with the copied hits.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnpartitionedHitMigration {
+    // Rows read and written at a time.
+    private static final int CHUNK_SIZE = 1000;
+
+    private final HitPartitionRepository hitPartitionRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final AggregateRepository aggregateRepository;
+    private final EndpointHitMapper endpointHitMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Copies the rows and drops the old table; fails without changing anything when the table is not laid out
+     * like the one stats-server created before partitioning.
+     */
+    public void migrate() {
+        if (!hitPartitionRepository.hasLegacyLayout()) {
+            throw new IllegalStateException(HitPartitionRepository.UNPARTITIONED + " does not have the app, uri, ip " +
+                    "and created columns of the endpoint_hit table stats-server created before partitioning; " +
+                    "copy its rows into endpoint_hit or drop it, then start stats-server again");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            long copied = 0;
+            long skipped = 0;
+            long lastId = 0;
+            SortedMap<Long, EndpointHitDto> chunk;
+            do {
+                chunk = hitPartitionRepository.findUnpartitionedAfter(lastId, CHUNK_SIZE);
+                List<EndpointHit> hits = new ArrayList<>(chunk.size());
+                for (Map.Entry<Long, EndpointHitDto> row : chunk.entrySet()) {
+                    EndpointHit hit = toEndpointHit(row.getKey(), row.getValue());
+                    if (hit == null) {
+                        skipped++;
+                    } else {
+                        hits.add(hit);
+                    }
+                }
+                if (!hits.isEmpty()) {
+                    hitBatchRepository.insertAll(hits);
+                    copied += hits.size();
+                }
+                if (!chunk.isEmpty()) {
+                    lastId = chunk.lastKey();
+                }
+            } while (chunk.size() == CHUNK_SIZE);
+            hitPartitionRepository.dropUnpartitioned();
+            aggregateRepository.markAllIncomplete();
+            log.info("Copied {} hits of the unpartitioned endpoint_hit table, skipped {} invalid ones", copied, skipped);
+        });
+    }
+
+    private EndpointHit toEndpointHit(long id, EndpointHitDto row) {
+        if (row.getCreated() == null) {
+            log.debug("Skipping unpartitioned hit {} without a time", id);
+            return null;
+        }
+        try {
+            return endpointHitMapper.toEndpointHit(row);
+        } catch (InvalidRequestParameterException | InvalidIpAddressException e) {
+            log.debug("Skipping unpartitioned hit {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+}
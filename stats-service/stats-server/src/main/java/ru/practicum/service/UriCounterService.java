@@ -0,0 +1,184 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.model.CounterDelta;
+import ru.practicum.model.CounterLookup;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.UriCounter;
+import ru.practicum.model.UriCounterChange;
+import ru.practicum.model.ViewStats;
+import ru.practicum.repository.UriCounterRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Exact all-time hit and unique-visitor counters per (app, uri), kept up to date during ingestion and rebuilt
+ * from the stored hits by {@link HitBackfillService} when they may be missing some.
+ * A counter answers any range that contains every hit of its uri, which is what ewm-service always asks for.
+ * Every write stamps the counters it changes with a new version, so the changes since a version can be read back
+ * as a feed. Versions are handed out by this instance and only become readable once every earlier write has
+ * committed or rolled back, so the feed has no gaps as long as a single stats-server writes to the database.
+ */
+@Service
+public class UriCounterService {
+    private static final Comparator<EndpointHit> VISITOR_ORDER = Comparator
+            .comparing(EndpointHit::getAppId)
+            .thenComparing(EndpointHit::getUriId)
+            .thenComparing(EndpointHit::getIp, Arrays::compare);
+    private static final Comparator<EndpointHit> URI_ORDER = Comparator
+            .comparing(EndpointHit::getAppId)
+            .thenComparing(EndpointHit::getUriId);
+
+    private final boolean enabled;
+    private final UriCounterRepository uriCounterRepository;
+    // Versions of writes still in progress, and the last version handed out; both guarded by pendingVersions.
+    private final NavigableSet<Long> pendingVersions = new TreeSet<>();
+    private long lastVersion;
+
+    public UriCounterService(@Value("${stats.counter.enabled:true}") boolean enabled,
+                             UriCounterRepository uriCounterRepository) {
+        this.enabled = enabled;
+        this.uriCounterRepository = uriCounterRepository;
+        this.lastVersion = enabled ? uriCounterRepository.findMaxVersion() : 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(List<EndpointHit> hits) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+        Map<EndpointHit, EndpointHit> firstVisits = new TreeMap<>(VISITOR_ORDER);
+        for (EndpointHit hit : hits) {
+            firstVisits.merge(hit, hit, (a, b) -> a.getCreated().isAfter(b.getCreated()) ? b : a);
+        }
+        List<EndpointHit> visits = new ArrayList<>(firstVisits.values());
+        int[] inserted = uriCounterRepository.insertVisitors(visits);
+
+        Map<EndpointHit, UriCounter> deltas = new TreeMap<>(URI_ORDER);
+        for (EndpointHit hit : hits) {
+            deltas.merge(hit, new UriCounter(hit.getAppId(), hit.getUriId(), hit.getHits(), 0, hit.getCreated(), hit.getCreated()),
+                    UriCounterService::sum);
+        }
+        for (int i = 0; i < visits.size(); i++) {
+            if (inserted[i] > 0) {
+                EndpointHit visit = visits.get(i);
+                deltas.merge(visit, new UriCounter(visit.getAppId(), visit.getUriId(), 0, 1, visit.getCreated(), visit.getCreated()),
+                        UriCounterService::sum);
+            }
+        }
+
+        writeVersion(version -> uriCounterRepository.increment(new ArrayList<>(deltas.values()), version));
+    }
+
+    /**
+     * Recounts every counter and visitor from the stored hits, replacing what was there, and stamps all counters
+     * with one new version so feed consumers pick up the new totals.
+     */
+    public void rebuild() {
+        writeVersion(uriCounterRepository::rebuild);
+    }
+
+    /**
+     * The newest version whose changes, and those of every earlier version, are committed or rolled back.
+     */
+    public long committedVersion() {
+        synchronized (pendingVersions) {
+            return pendingVersions.isEmpty() ? lastVersion : pendingVersions.first() - 1;
+        }
+    }
+
+    /**
+     * Up to about {@code limit} counters changed after {@code since}, in version order, with the watermark to
+     * continue from. A page is never cut inside a version, so it is longer than the limit when one write changed
+     * more counters than that. A {@code since} beyond the last version means the counters were reset; the answer
+     * is then an empty page with a watermark below it.
+     */
+    public CounterDelta findChanged(long since, String app, String prefix, int limit) {
+        long upTo = committedVersion();
+        if (since >= upTo) {
+            return new CounterDelta(upTo, false, List.of());
+        }
+        List<UriCounterChange> changes = uriCounterRepository.findChanged(since, upTo, app, prefix, limit);
+        if (changes.size() < limit) {
+            return new CounterDelta(upTo, false, changes);
+        }
+        long last = changes.get(changes.size() - 1).getVersion();
+        if (changes.get(0).getVersion() == last) {
+            changes = uriCounterRepository.findChanged(last - 1, last, app, prefix, Integer.MAX_VALUE);
+        } else {
+            long cut = last;
+            changes.removeIf(change -> change.getVersion() == cut);
+            last = changes.get(changes.size() - 1).getVersion();
+        }
+        return new CounterDelta(last, last < upTo, changes);
+    }
+
+    /**
+     * Answers every (app, uri) whose hits all lie within [start, end] from its counter and lists the rest as uncovered.
+     */
+    public CounterLookup lookup(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique) {
+        CounterLookup lookup = new CounterLookup();
+        for (UriCounter counter : uriCounterRepository.findCounters(uriIds)) {
+            if (!counter.getFirstHit().isBefore(start) && !counter.getLastHit().isAfter(end)) {
+                lookup.addCovered(new ViewStats(counter.getAppId(), counter.getUriId(),
+                        unique ? counter.getUniqueHits() : counter.getHits()));
+            } else {
+                lookup.addUncovered(counter.getAppId(), counter.getUriId());
+            }
+        }
+        return lookup;
+    }
+
+    private void writeVersion(LongConsumer write) {
+        long version;
+        synchronized (pendingVersions) {
+            version = ++lastVersion;
+            pendingVersions.add(version);
+        }
+        boolean transactional = TransactionSynchronizationManager.isSynchronizationActive();
+        if (transactional) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeVersion(version);
+                }
+            });
+        }
+        try {
+            write.accept(version);
+        } finally {
+            if (!transactional) {
+                completeVersion(version);
+            }
+        }
+    }
+
+    private void completeVersion(long version) {
+        synchronized (pendingVersions) {
+            pendingVersions.remove(version);
+        }
+    }
+
+    private static UriCounter sum(UriCounter a, UriCounter b) {
+        return new UriCounter(a.getAppId(), a.getUriId(),
+                a.getHits() + b.getHits(),
+                a.getUniqueHits() + b.getUniqueHits(),
+                a.getFirstHit().isBefore(b.getFirstHit()) ? a.getFirstHit() : b.getFirstHit(),
+                a.getLastHit().isAfter(b.getLastHit()) ? a.getLastHit() : b.getLastHit());
+    }
+}
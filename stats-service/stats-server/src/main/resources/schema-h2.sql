@@ -0,0 +1,15 @@
+create table if not exists ENDPOINT_HIT (
+    id              BIGINT generated by default as identity,
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    ip              BYTEA NOT NULL,
+    created         TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits            INTEGER DEFAULT 1 NOT NULL,
+    constraint ENDPOINT_HIT_PK primary key (id)
+);
+
+-- Tables created before weighted hits.
+ALTER TABLE ENDPOINT_HIT ADD COLUMN IF NOT EXISTS hits INTEGER DEFAULT 1 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ENDPOINT_HIT_CREATED_idx ON ENDPOINT_HIT (created);
+CREATE INDEX IF NOT EXISTS ENDPOINT_HIT_URI_CREATED_idx ON ENDPOINT_HIT (uri_id, created);
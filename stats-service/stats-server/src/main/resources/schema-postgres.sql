@@ -0,0 +1,30 @@
+-- endpoint_hit created before partitioning is a plain table with app, uri and ip as text: it is renamed out of
+-- the way here and its rows are encoded and copied into the partitioned table by UnpartitionedHitMigration on startup.
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass(''endpoint_hit'') AND relkind = ''r'') THEN
+        ALTER TABLE endpoint_hit RENAME TO endpoint_hit_unpartitioned;
+        ALTER TABLE endpoint_hit_unpartitioned RENAME CONSTRAINT endpoint_hit_pk TO endpoint_hit_unpartitioned_pk;
+        ALTER INDEX IF EXISTS endpoint_hit_created_idx RENAME TO endpoint_hit_unpartitioned_created_idx;
+        ALTER INDEX IF EXISTS endpoint_hit_uri_created_idx RENAME TO endpoint_hit_unpartitioned_uri_created_idx;
+        ALTER INDEX IF EXISTS endpoint_hit_idx RENAME TO endpoint_hit_unpartitioned_idx;
+    END IF;
+END';
+
+create table if not exists ENDPOINT_HIT (
+    id              BIGINT generated by default as identity,
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    ip              BYTEA NOT NULL,
+    created         TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits            INTEGER DEFAULT 1 NOT NULL,
+    constraint ENDPOINT_HIT_PK primary key (id, created)
+) partition by range (created);
+
+create table if not exists ENDPOINT_HIT_DEFAULT partition of ENDPOINT_HIT default;
+
+-- Tables created before weighted hits.
+ALTER TABLE ENDPOINT_HIT ADD COLUMN IF NOT EXISTS hits INTEGER DEFAULT 1 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ENDPOINT_HIT_CREATED_idx ON ENDPOINT_HIT (created);
+CREATE INDEX IF NOT EXISTS ENDPOINT_HIT_URI_CREATED_idx ON ENDPOINT_HIT (uri_id, created);
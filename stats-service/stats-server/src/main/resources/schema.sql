@@ -1,12 +1,61 @@
-drop table if exists ENDPOINT_HIT;
+create table if not exists STATS_APP (
+    id              INTEGER generated by default as identity,
+    name            VARCHAR(256) NOT NULL,
+    constraint STATS_APP_PK primary key (id),
+    constraint STATS_APP_NAME_UQ unique (name)
+);
+
+create table if not exists STATS_URI (
+    id              INTEGER generated by default as identity,
+    name            VARCHAR(512) NOT NULL,
+    constraint STATS_URI_PK primary key (id),
+    constraint STATS_URI_NAME_UQ unique (name)
+);
+
+-- Aggregates that hold every hit of ENDPOINT_HIT; one that is enabled but not listed is rebuilt on startup.
+create table if not exists STATS_AGGREGATE (
+    name            VARCHAR(32) NOT NULL,
+    constraint STATS_AGGREGATE_PK primary key (name)
+);
+
+create table if not exists HIT_ROLLUP (
+    granularity     VARCHAR(6) NOT NULL,
+    bucket_start    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    hits            BIGINT NOT NULL,
+    constraint HIT_ROLLUP_PK primary key (granularity, bucket_start, app_id, uri_id)
+);
+
+create table if not exists HIT_SKETCH (
+    granularity     VARCHAR(6) NOT NULL,
+    bucket_start    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    registers       BYTEA NOT NULL,
+    constraint HIT_SKETCH_PK primary key (granularity, bucket_start, app_id, uri_id)
+);
+
+create table if not exists URI_VISITOR (
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    ip              BYTEA NOT NULL,
+    first_seen      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    constraint URI_VISITOR_PK primary key (app_id, uri_id, ip)
+);
 
-create table if not exists ENDPOINT_HIT (
-    id              BIGINT generated by default as identity,
-    app             VARCHAR(256),
-    uri             VARCHAR(512),
-    ip              VARCHAR(64),
-    created         TIMESTAMP WITHOUT TIME ZONE,
-    constraint ENDPOINT_HIT_PK primary key (id)
+create table if not exists URI_COUNTER (
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    hits            BIGINT NOT NULL,
+    unique_hits     BIGINT NOT NULL,
+    first_hit       TIMESTAMP WITHOUT TIME ZONE,
+    last_hit        TIMESTAMP WITHOUT TIME ZONE,
+    version         BIGINT DEFAULT 0 NOT NULL,
+    constraint URI_COUNTER_PK primary key (app_id, uri_id)
 );
 
-CREATE UNIQUE INDEX ENDPOINT_HIT_idx ON ENDPOINT_HIT (id);
+CREATE INDEX IF NOT EXISTS URI_COUNTER_URI_idx ON URI_COUNTER (uri_id);
+-- Tables created before the change feed.
+ALTER TABLE URI_COUNTER ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+CREATE INDEX IF NOT EXISTS URI_COUNTER_VERSION_idx ON URI_COUNTER (version);
@@ -0,0 +1,96 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the whole server on the H2 database of the test profile. Test classes share the context and so the
+ * database, hence each one keeps its hits under uris of its own, saved once in a {@code @BeforeAll} method.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+abstract class AbstractStatsControllerTest {
+    static final TypeReference<List<ViewStatsDto>> STATS = new TypeReference<>() {
+    };
+    static final TypeReference<StatsDeltaDto> DELTA = new TypeReference<>() {
+    };
+    static final String APP = "ewm-main-service";
+    static final String OTHER_APP = "other-service";
+    static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // stats.hit-batch.max-size of the test profile.
+    static final int MAX_BATCH = 1000;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    void save(String uri, String ip, LocalDateTime created) throws Exception {
+        saveAll(List.of(new EndpointHitDto(APP, uri, ip, created)));
+    }
+
+    /**
+     * Posts the hits in as few batches as the server accepts.
+     */
+    void saveAll(List<EndpointHitDto> hits) throws Exception {
+        for (int from = 0; from < hits.size(); from += MAX_BATCH) {
+            mockMvc.perform(postJson("/hit/batch", hits.subList(from, Math.min(from + MAX_BATCH, hits.size()))))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    MockHttpServletRequestBuilder postJson(String path, Object body) throws Exception {
+        return post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body));
+    }
+
+    <T> T read(RequestBuilder request, TypeReference<T> type) throws Exception {
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, type);
+    }
+
+    void expectBadRequest(RequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().isBadRequest());
+    }
+
+    static MockHttpServletRequestBuilder stats(LocalDateTime start, LocalDateTime end, String... uris) {
+        MockHttpServletRequestBuilder request = get("/stats")
+                .param("start", format(start))
+                .param("end", format(end));
+        return uris.length == 0 ? request : request.param("uris", uris);
+    }
+
+    static MockHttpServletRequestBuilder delta(long since, String prefix) {
+        return get("/stats/delta")
+                .param("since", String.valueOf(since))
+                .param("prefix", prefix);
+    }
+
+    static String format(LocalDateTime time) {
+        return FORMAT.format(time);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.dto.UriCountDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.service.HitBackfillService;
+import ru.practicum.service.UnpartitionedHitMigration;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Upgrade of a database last used by stats-server before partitioning: its plain endpoint_hit, renamed as
+ * schema-postgres.sql does, is copied into the current table and shows up in every aggregate.
+ */
+class BaselineUpgradeTest extends AbstractStatsControllerTest {
+    // schema.sql of the baseline, with the table and key renamed.
+    private static final String BASELINE_DDL = "create table ENDPOINT_HIT_UNPARTITIONED (\n" +
+            "    id              BIGINT generated by default as identity,\n" +
+            "    app             VARCHAR(256),\n" +
+            "    uri             VARCHAR(512),\n" +
+            "    ip              VARCHAR(64),\n" +
+            "    created         TIMESTAMP WITHOUT TIME ZONE,\n" +
+            "    constraint ENDPOINT_HIT_UNPARTITIONED_PK primary key (id)\n" +
+            ")";
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 2, 1, 0, 0);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UnpartitionedHitMigration unpartitionedHitMigration;
+
+    @Autowired
+    HitBackfillService hitBackfillService;
+
+    @AfterEach
+    void dropLeftovers() {
+        jdbcTemplate.execute("drop table if exists endpoint_hit_unpartitioned");
+    }
+
+    @Test
+    void baselineHitsAreEncodedCopiedAndCounted() throws Exception {
+        jdbcTemplate.execute(BASELINE_DDL);
+        insert(APP, "/baseline/1", "10.0.0.1", DAY.plusHours(10));
+        insert(APP, "/baseline/1", "10.0.0.1", DAY.plusHours(11));
+        insert(APP, "/baseline/1", "10.0.0.2", DAY.plusDays(1).plusMinutes(5));
+        insert(APP, "/baseline/2", "::1", DAY.plusHours(12));
+        insert(null, "/baseline/2", "10.0.0.1", DAY.plusHours(12));
+        insert(APP, "/baseline/2", "localhost", DAY.plusHours(12));
+        insert(APP, "/baseline/2", "10.0.0.1", null);
+
+        unpartitionedHitMigration.migrate();
+        hitBackfillService.backfill();
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from information_schema.tables " +
+                "where lower(table_name) = 'endpoint_hit_unpartitioned'", Integer.class)).isZero();
+        // Whole days, so hits come from the rebuilt rollups.
+        assertThat(read(stats(false), STATS))
+                .extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/baseline/1", 3L), tuple("/baseline/2", 1L));
+        assertThat(read(stats(true), STATS))
+                .extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/baseline/1", 2L), tuple("/baseline/2", 1L));
+        assertThat(read(delta(0, "/baseline/"), DELTA).getCounts())
+                .extracting(UriCountDto::getUri, UriCountDto::getHits, UriCountDto::getUniqueHits)
+                .containsExactlyInAnyOrder(tuple("/baseline/1", 3L, 2L), tuple("/baseline/2", 1L, 1L));
+    }
+
+    @Test
+    void tableOfAnotherLayoutStopsTheMigration() {
+        jdbcTemplate.execute("create table endpoint_hit_unpartitioned (id BIGINT, app_id INTEGER, uri_id INTEGER, " +
+                "ip BINARY VARYING(16), created TIMESTAMP)");
+
+        assertThatThrownBy(() -> unpartitionedHitMigration.migrate())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("drop it");
+    }
+
+    private void insert(String app, String uri, String ip, LocalDateTime created) {
+        jdbcTemplate.update("insert into endpoint_hit_unpartitioned (app, uri, ip, created) values (?, ?, ?, ?)",
+                app, uri, ip, created == null ? null : Timestamp.valueOf(created));
+    }
+
+    private static RequestBuilder stats(boolean unique) {
+        return stats(DAY, DAY.plusDays(2), "/baseline/1", "/baseline/2").param("unique", String.valueOf(unique));
+    }
+}
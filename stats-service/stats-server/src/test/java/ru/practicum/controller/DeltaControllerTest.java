@@ -0,0 +1,104 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsDeltaDto;
+import ru.practicum.dto.UriCountDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class DeltaControllerTest extends AbstractStatsControllerTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 8, 1, 10, 0);
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        save("/delta/feed/1", "10.0.0.1", CREATED);
+        save("/delta/feed/1", "10.0.0.1", CREATED.plusMinutes(1));
+        save("/delta/feed/1", "10.0.0.2", CREATED.plusMinutes(2));
+        save("/delta/feed/2", "10.0.0.1", CREATED.plusMinutes(3));
+    }
+
+    @Test
+    void pollingReturnsOnlyChangedCountsAsAbsoluteValues() throws Exception {
+        StatsDeltaDto first = read(delta(0, "/delta/feed/"), DELTA);
+
+        assertThat(first.getMore()).isFalse();
+        assertThat(first.getCounts())
+                .extracting(UriCountDto::getApp, UriCountDto::getUri, UriCountDto::getHits, UriCountDto::getUniqueHits)
+                .containsExactly(tuple(APP, "/delta/feed/1", 3L, 2L), tuple(APP, "/delta/feed/2", 1L, 1L));
+
+        StatsDeltaDto unchanged = read(delta(first.getWatermark(), "/delta/feed/"), DELTA);
+        assertThat(unchanged.getCounts()).isEmpty();
+        assertThat(unchanged.getMore()).isFalse();
+        assertThat(unchanged.getWatermark()).isGreaterThanOrEqualTo(first.getWatermark());
+
+        save("/delta/feed/2", "10.0.0.3", CREATED.plusMinutes(4));
+        StatsDeltaDto changed = read(delta(unchanged.getWatermark(), "/delta/feed/"), DELTA);
+        assertThat(changed.getWatermark()).isGreaterThan(unchanged.getWatermark());
+        assertThat(changed.getCounts())
+                .extracting(UriCountDto::getUri, UriCountDto::getHits, UriCountDto::getUniqueHits)
+                .containsExactly(tuple("/delta/feed/2", 2L, 2L));
+    }
+
+    @Test
+    void limitCutsPagesBetweenWrites() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            save("/delta/page/" + i, "10.0.0.1", CREATED);
+        }
+
+        List<String> uris = new ArrayList<>();
+        long since = 0;
+        StatsDeltaDto page = read(delta(since, "/delta/page/").param("limit", "2"), DELTA);
+        assertThat(page.getMore()).isTrue();
+        while (true) {
+            assertThat(page.getWatermark()).isGreaterThan(since);
+            page.getCounts().forEach(count -> uris.add(count.getUri()));
+            if (!page.getMore()) {
+                break;
+            }
+            since = page.getWatermark();
+            page = read(delta(since, "/delta/page/").param("limit", "2"), DELTA);
+        }
+
+        assertThat(uris).containsExactly("/delta/page/1", "/delta/page/2", "/delta/page/3");
+    }
+
+    @Test
+    void oneWriteIsNeverSplitAcrossPages() throws Exception {
+        saveAll(List.of(new EndpointHitDto(APP, "/delta/batch/1", "10.0.0.1", CREATED),
+                new EndpointHitDto(APP, "/delta/batch/2", "10.0.0.1", CREATED),
+                new EndpointHitDto(APP, "/delta/batch/3", "10.0.0.1", CREATED)));
+
+        StatsDeltaDto page = read(delta(0, "/delta/batch/").param("limit", "2"), DELTA);
+
+        assertThat(page.getMore()).isFalse();
+        assertThat(page.getCounts()).extracting(UriCountDto::getUri)
+                .containsExactly("/delta/batch/1", "/delta/batch/2", "/delta/batch/3");
+    }
+
+    @Test
+    void appNarrowsTheFeed() throws Exception {
+        save("/delta/app/1", "10.0.0.1", CREATED);
+        saveAll(List.of(new EndpointHitDto(OTHER_APP, "/delta/app/1", "10.0.0.1", CREATED),
+                new EndpointHitDto(OTHER_APP, "/delta/app/1", "10.0.0.2", CREATED)));
+
+        StatsDeltaDto delta = read(delta(0, "/delta/app/").param("app", OTHER_APP), DELTA);
+
+        assertThat(delta.getCounts())
+                .extracting(UriCountDto::getApp, UriCountDto::getUri, UriCountDto::getHits, UriCountDto::getUniqueHits)
+                .containsExactly(tuple(OTHER_APP, "/delta/app/1", 2L, 2L));
+    }
+
+    @Test
+    void rejectsNegativeSinceAndLimitsOutOfRange() throws Exception {
+        expectBadRequest(delta(-1, "/delta/feed/"));
+        expectBadRequest(delta(0, "/delta/feed/").param("limit", "0"));
+        expectBadRequest(delta(0, "/delta/feed/").param("limit", "10001"));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.dto.HistogramBucketDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class HistogramControllerTest extends AbstractStatsControllerTest {
+    private static final TypeReference<List<HistogramBucketDto>> BUCKETS = new TypeReference<>() {
+    };
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 4, 1, 10, 0);
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        save("/histogram/1", "10.0.0.1", HOUR.plusMinutes(5).plusSeconds(10));
+        save("/histogram/1", "10.0.0.1", HOUR.plusMinutes(5).plusSeconds(50));
+        save("/histogram/1", "10.0.0.2", HOUR.plusMinutes(59).plusSeconds(59));
+        save("/histogram/1", "10.0.0.1", HOUR.plusHours(2));
+        save("/histogram/2", "10.0.0.1", HOUR.plusMinutes(30));
+    }
+
+    @Test
+    void everyBucketOfTheRangeIsPresent() throws Exception {
+        List<HistogramBucketDto> buckets = read(histogram("/histogram/1", HOUR, HOUR.plusMinutes(150), "hour"),
+                BUCKETS);
+
+        assertThat(buckets).extracting(HistogramBucketDto::getStart, HistogramBucketDto::getHits,
+                        HistogramBucketDto::getUniqueHits)
+                .containsExactly(tuple(HOUR, 3L, null), tuple(HOUR.plusHours(1), 0L, null),
+                        tuple(HOUR.plusHours(2), 1L, null));
+    }
+
+    @Test
+    void uniqueCountsOnlyOnRequest() throws Exception {
+        List<HistogramBucketDto> buckets = read(histogram("/histogram/1", HOUR, HOUR.plusMinutes(150), "hour")
+                .param("unique", "true"), BUCKETS);
+
+        assertThat(buckets).extracting(HistogramBucketDto::getHits, HistogramBucketDto::getUniqueHits)
+                .containsExactly(tuple(3L, 2L), tuple(0L, 0L), tuple(1L, 1L));
+    }
+
+    @Test
+    void minuteBucketsStartAtTheMinuteOfStart() throws Exception {
+        List<HistogramBucketDto> buckets = read(histogram("/histogram/1", HOUR.plusMinutes(5).plusSeconds(30),
+                HOUR.plusMinutes(6).plusSeconds(30), "minute"), BUCKETS);
+
+        assertThat(buckets).extracting(HistogramBucketDto::getStart, HistogramBucketDto::getHits)
+                .containsExactly(tuple(HOUR.plusMinutes(5), 2L), tuple(HOUR.plusMinutes(6), 0L));
+    }
+
+    @Test
+    void unknownUriHasEmptyBuckets() throws Exception {
+        List<HistogramBucketDto> buckets = read(histogram("/histogram/unknown", HOUR, HOUR.plusDays(2), "day"),
+                BUCKETS);
+
+        assertThat(buckets).extracting(HistogramBucketDto::getHits).containsExactly(0L, 0L, 0L);
+    }
+
+    @Test
+    void rejectsUnknownBucketsAndTooManyBuckets() throws Exception {
+        expectBadRequest(histogram("/histogram/1", HOUR, HOUR.plusHours(1), "week"));
+        expectBadRequest(histogram("/histogram/1", HOUR, HOUR.plusDays(7), "minute"));
+        expectBadRequest(histogram("/histogram/1", HOUR, HOUR.minusHours(1), "hour"));
+    }
+
+    private static MockHttpServletRequestBuilder histogram(String uri, LocalDateTime start, LocalDateTime end,
+                                                           String bucket) {
+        return get("/stats/histogram")
+                .param("start", format(start))
+                .param("end", format(end))
+                .param("uri", uri)
+                .param("bucket", bucket);
+    }
+}
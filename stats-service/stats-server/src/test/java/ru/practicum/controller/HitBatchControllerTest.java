@@ -0,0 +1,39 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class HitBatchControllerTest extends AbstractStatsControllerTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 9, 1, 10, 0);
+
+    @Test
+    void batchOfTheMaximumSizeIsStored() throws Exception {
+        saveAll(hits("/batch/full", MAX_BATCH));
+
+        assertThat(read(stats(CREATED, CREATED.plusDays(1), "/batch/full"), STATS))
+                .extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/batch/full", (long) MAX_BATCH));
+    }
+
+    @Test
+    void largerBatchIsRejectedWhole() throws Exception {
+        expectBadRequest(postJson("/hit/batch", hits("/batch/over", MAX_BATCH + 1)));
+
+        assertThat(read(stats(CREATED, CREATED.plusDays(1), "/batch/over"), STATS)).isEmpty();
+    }
+
+    private static List<EndpointHitDto> hits(String uri, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new EndpointHitDto(APP, uri, "10.0.0.1", CREATED.plusSeconds(i)))
+                .collect(Collectors.toList());
+    }
+}
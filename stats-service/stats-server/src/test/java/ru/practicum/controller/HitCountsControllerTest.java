@@ -0,0 +1,70 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsCountQueryDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitCountsControllerTest extends AbstractStatsControllerTest {
+    private static final TypeReference<long[]> COUNTS = new TypeReference<>() {
+    };
+    private static final LocalDateTime START = LocalDateTime.of(2024, 7, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 7, 31, 0, 0);
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        save("/counts/1", "10.0.0.1", START.plusDays(1));
+        save("/counts/1", "10.0.0.1", START.plusDays(2));
+        save("/counts/1", "10.0.0.2", START.plusDays(3));
+        save("/counts/1", "10.0.0.2", END.plusDays(3));
+        save("/counts/2", "10.0.0.1", START.plusDays(1));
+        saveAll(List.of(new EndpointHitDto(OTHER_APP, "/counts/1", "10.0.0.3", START.plusDays(1)),
+                new EndpointHitDto(OTHER_APP, "/counts/1", "10.0.0.3", START.plusDays(2))));
+    }
+
+    @Test
+    void countsFollowTheOrderOfIds() throws Exception {
+        long[] counts = read(counts(query().app(APP).ids(List.of(2L, 1L, 99L, 1L))), COUNTS);
+
+        assertThat(counts).containsExactly(1, 3, 0, 3);
+    }
+
+    @Test
+    void withoutAppEveryAppCounts() throws Exception {
+        long[] counts = read(counts(query().ids(List.of(1L, 2L))), COUNTS);
+
+        assertThat(counts).containsExactly(5, 1);
+    }
+
+    @Test
+    void uniqueCountsDistinctIps() throws Exception {
+        long[] counts = read(counts(query().app(APP).ids(List.of(1L, 2L)).unique(true)), COUNTS);
+
+        assertThat(counts).containsExactly(2, 1);
+    }
+
+    @Test
+    void noIdsGiveNoCounts() throws Exception {
+        assertThat(read(counts(query().ids(List.of())), COUNTS)).isEmpty();
+    }
+
+    @Test
+    void uriPrefixIsRequired() throws Exception {
+        expectBadRequest(counts(query().ids(List.of(1L)).uriPrefix(null)));
+    }
+
+    private static StatsCountQueryDto.StatsCountQueryDtoBuilder query() {
+        return StatsCountQueryDto.builder().start(format(START)).end(format(END)).uriPrefix("/counts/");
+    }
+
+    private RequestBuilder counts(StatsCountQueryDto.StatsCountQueryDtoBuilder query) throws Exception {
+        return postJson("/stats/counts", query.build());
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class StatsQueryControllerTest extends AbstractStatsControllerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 6, 30, 0, 0);
+    private static final int MANY = 2_100;
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        save("/query/1", "10.0.0.1", START.plusDays(1));
+        save("/query/1", "10.0.0.1", START.plusDays(2));
+        save("/query/1", "10.0.0.2", START.plusDays(3));
+        save("/query/2", "10.0.0.1", START.plusDays(1));
+        for (int i = 0; i < 5; i++) {
+            save("/query/3", "10.0.0." + i, START.plusHours(i));
+        }
+        save("/query/3", "10.0.0.1", END.plusDays(1));
+
+        List<EndpointHitDto> many = new ArrayList<>();
+        for (int i = 0; i < MANY; i++) {
+            many.add(new EndpointHitDto(APP, "/query/many/" + i, "10.0.0.1", START.plusMinutes(i)));
+        }
+        for (int i = 0; i < 3; i++) {
+            many.add(new EndpointHitDto(APP, "/query/many/5", "10.0.0.1", START.plusDays(5)));
+        }
+        for (int i = 0; i < 2; i++) {
+            many.add(new EndpointHitDto(APP, "/query/many/1500", "10.0.0.1", START.plusDays(5)));
+        }
+        saveAll(many);
+    }
+
+    @Test
+    void listedUrisAreCounted() throws Exception {
+        List<ViewStatsDto> stats = read(query(StatsQueryDto.builder()
+                .uris(List.of("/query/1", "/query/2", "/query/unknown"))), STATS);
+
+        assertThat(stats).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/query/1", 3L), tuple("/query/2", 1L));
+    }
+
+    @Test
+    void idsAreAppendedToThePrefixAndCombinedWithUris() throws Exception {
+        List<ViewStatsDto> stats = read(query(StatsQueryDto.builder()
+                .uris(List.of("/query/2"))
+                .uriPrefix("/query/")
+                .ids(List.of(1L, 3L))), STATS);
+
+        assertThat(stats).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/query/3", 5L), tuple("/query/1", 3L), tuple("/query/2", 1L));
+    }
+
+    @Test
+    void answersLikeGetStats() throws Exception {
+        List<ViewStatsDto> expected = read(stats(START, END, "/query/1", "/query/3").param("unique", "true"), STATS);
+
+        List<ViewStatsDto> stats = read(query(StatsQueryDto.builder()
+                .uris(List.of("/query/1", "/query/3"))
+                .unique(true)), STATS);
+
+        assertThat(stats).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/query/3", 5L), tuple("/query/1", 2L))
+                .containsExactlyElementsOf(expected.stream()
+                        .map(s -> tuple(s.getUri(), s.getHits()))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void longUriListsAreCountedWhole() throws Exception {
+        List<String> uris = IntStream.range(0, MANY + 500)
+                .mapToObj(i -> "/query/many/" + i)
+                .collect(Collectors.toList());
+        uris.add("/query/many/5");
+
+        List<ViewStatsDto> stats = read(query(StatsQueryDto.builder().uris(uris)), STATS);
+
+        assertThat(stats).hasSize(MANY);
+        assertThat(stats).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .startsWith(tuple("/query/many/5", 4L), tuple("/query/many/1500", 3L));
+        assertThat(stats.stream().mapToLong(ViewStatsDto::getHits).sum()).isEqualTo(MANY + 5);
+        assertThat(stats.stream().map(ViewStatsDto::getUri).distinct().count()).isEqualTo(MANY);
+    }
+
+    @Test
+    void rejectsIdsWithoutPrefixAndBadRanges() throws Exception {
+        expectBadRequest(query(StatsQueryDto.builder().ids(List.of(1L))));
+        expectBadRequest(query(StatsQueryDto.builder().uris(List.of("/query/1")).end(format(START.minusDays(1)))));
+    }
+
+    private RequestBuilder query(StatsQueryDto.StatsQueryDtoBuilder builder) throws Exception {
+        StatsQueryDto query = builder.build();
+        if (query.getStart() == null) {
+            query.setStart(format(START));
+        }
+        if (query.getEnd() == null) {
+            query.setEnd(format(END));
+        }
+        return postJson("/stats/query", query);
+    }
+}
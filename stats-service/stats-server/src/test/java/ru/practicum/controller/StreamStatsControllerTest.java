@@ -0,0 +1,66 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamStatsControllerTest extends AbstractStatsControllerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2022, 5, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2022, 5, 31, 0, 0);
+    // More uris than one block of the streamed report holds.
+    private static final int URIS = 1200;
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int i = 0; i < URIS; i++) {
+            hits.add(new EndpointHitDto(APP, "/stream/" + i, "10.0.0.1", START.plusHours(1)));
+        }
+        hits.add(new EndpointHitDto(APP, "/stream/0", "10.0.0.1", START.plusHours(2)));
+        hits.add(new EndpointHitDto(APP, "/stream/0", "10.0.0.2", START.plusHours(3)));
+        hits.add(new EndpointHitDto(APP, "/stream/1", "10.0.0.1", START.plusHours(2)));
+        hits.add(new EndpointHitDto(APP, "/stream/1", "10.0.0.1", END.plusDays(1)));
+        hits.add(new EndpointHitDto(OTHER_APP, "/stream/0", "10.0.0.3", START.plusHours(1)));
+        saveAll(hits);
+    }
+
+    @Test
+    void streamedStatsEqualTheRegularOnes() throws Exception {
+        expectSameStats(stats(START, END), "false");
+    }
+
+    @Test
+    void streamedUniqueStatsEqualTheRegularOnes() throws Exception {
+        expectSameStats(stats(START, END), "true");
+    }
+
+    @Test
+    void streamedStatsOfGivenUrisEqualTheRegularOnes() throws Exception {
+        expectSameStats(stats(START, END, "/stream/0", "/stream/1", "/stream/2", "/stream/unknown"), "false");
+        expectSameStats(stats(START, END, "/stream/0", "/stream/1", "/stream/2", "/stream/unknown"), "true");
+    }
+
+    @Test
+    void streamedStatsOfUnknownUrisAreEmpty() throws Exception {
+        assertThat(read(stats(START, END, "/stream/unknown").param("stream", "true"), STATS)).isEmpty();
+    }
+
+    private void expectSameStats(MockHttpServletRequestBuilder request, String unique) throws Exception {
+        List<ViewStatsDto> regular = read(request.param("unique", unique), STATS);
+        List<ViewStatsDto> streamed = read(request.param("stream", "true"), STATS);
+
+        assertThat(streamed).isNotEmpty();
+        // Equal hits may come in either order, so only the order of the hits is compared.
+        assertThat(streamed).usingRecursiveFieldByFieldElementComparator().containsExactlyInAnyOrderElementsOf(regular);
+        assertThat(streamed).extracting(ViewStatsDto::getHits).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+}
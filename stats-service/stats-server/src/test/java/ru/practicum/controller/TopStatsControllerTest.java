@@ -0,0 +1,97 @@
+package ru.practicum.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class TopStatsControllerTest extends AbstractStatsControllerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 10, 10, 15, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 12, 8, 0, 0);
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        // Spread over whole days, hours, minutes and ragged seconds, so rollups and raw hits both count.
+        LocalDateTime[] times = {START, START.plusSeconds(20), START.plusHours(3), START.plusDays(1),
+                END.minusMinutes(1), END};
+        for (int i = 0; i < 6; i++) {
+            save("/top/1", i < 4 ? "10.0.0.1" : "10.0.0.2", times[i]);
+        }
+        for (int i = 0; i < 4; i++) {
+            save("/top/2", "10.0.1." + i, times[i + 1]);
+        }
+        save("/top/3", "10.0.0.1", START.plusMinutes(90));
+        save("/top/3", "10.0.0.1", START.minusSeconds(1));
+        save("/top/3", "10.0.0.1", END.plusSeconds(1));
+        for (int i = 0; i < 10; i++) {
+            save("/other/1", "10.0.0.1", START.plusHours(i));
+        }
+    }
+
+    @Test
+    void topUrisByHitsUnderThePrefix() throws Exception {
+        List<ViewStatsDto> top = read(top(START, END, 10, "/top/", false), STATS);
+
+        assertThat(top).extracting(ViewStatsDto::getApp, ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple(APP, "/top/1", 6L), tuple(APP, "/top/2", 4L), tuple(APP, "/top/3", 1L));
+    }
+
+    @Test
+    void limitCutsTheRanking() throws Exception {
+        List<ViewStatsDto> top = read(top(START, END, 2, "/top/", false), STATS);
+
+        assertThat(top).extracting(ViewStatsDto::getUri).containsExactly("/top/1", "/top/2");
+    }
+
+    @Test
+    void uniqueRanksByDistinctIps() throws Exception {
+        List<ViewStatsDto> top = read(top(START, END, 10, "/top/", true), STATS);
+
+        assertThat(top).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/top/2", 4L), tuple("/top/1", 2L), tuple("/top/3", 1L));
+    }
+
+    @Test
+    void rankingMatchesStatsForTheSameRange() throws Exception {
+        List<ViewStatsDto> stats = read(stats(START.plusMinutes(1), END, "/top/1", "/top/2", "/top/3"), STATS);
+        List<ViewStatsDto> top = read(top(START.plusMinutes(1), END, 10, "/top/", false), STATS);
+
+        assertThat(top).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactlyInAnyOrderElementsOf(stats.stream()
+                        .map(s -> tuple(s.getUri(), s.getHits()))
+                        .collect(Collectors.toList()));
+        assertThat(top).extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/top/1", 4L), tuple("/top/2", 3L), tuple("/top/3", 1L));
+    }
+
+    @Test
+    void prefixIsMatchedLiterally() throws Exception {
+        assertThat(read(top(START, END, 10, "/t_p/", false), STATS)).isEmpty();
+        assertThat(read(top(START, END, 10, "/top%", false), STATS)).isEmpty();
+    }
+
+    @Test
+    void limitMustBeWithinBounds() throws Exception {
+        expectBadRequest(top(START, END, 0, "/top/", false));
+        expectBadRequest(top(START, END, 1001, "/top/", false));
+        expectBadRequest(top(END, START, 10, "/top/", false));
+    }
+
+    private static MockHttpServletRequestBuilder top(LocalDateTime start, LocalDateTime end, int limit, String prefix,
+                                                     boolean unique) {
+        return get("/stats/top")
+                .param("start", format(start))
+                .param("end", format(end))
+                .param("limit", String.valueOf(limit))
+                .param("prefix", prefix)
+                .param("unique", String.valueOf(unique));
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.dto.WindowStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class WindowStatsControllerTest extends AbstractStatsControllerTest {
+    private static final TypeReference<List<WindowStatsDto>> WINDOWS = new TypeReference<>() {
+    };
+    private static final LocalDateTime END = LocalDateTime.of(2024, 5, 20, 12, 0);
+
+    @BeforeAll
+    void saveHits() throws Exception {
+        save("/windows/1", "10.0.0.1", END.minusMinutes(30));
+        save("/windows/1", "10.0.0.1", END.minusHours(2));
+        save("/windows/1", "10.0.0.2", END.minusDays(3));
+        save("/windows/1", "10.0.0.3", END.minusDays(40));
+        save("/windows/1", "10.0.0.4", END.plusHours(1));
+        save("/windows/2", "10.0.0.1", END.minusMinutes(10));
+        save("/windows/2", "10.0.0.1", END.minusMinutes(5));
+    }
+
+    @Test
+    void everyWindowIsCountedAndRowsAreSortedByTheWidest() throws Exception {
+        List<WindowStatsDto> stats = read(windows("1h", "1d", "all"), WINDOWS);
+
+        assertThat(stats).extracting(WindowStatsDto::getUri).containsExactly("/windows/1", "/windows/2");
+        assertThat(stats.get(0).getHits()).containsExactly(Map.entry("1h", 1L), Map.entry("1d", 2L),
+                Map.entry("all", 4L));
+        assertThat(stats.get(1).getHits()).containsExactly(Map.entry("1h", 2L), Map.entry("1d", 2L),
+                Map.entry("all", 2L));
+    }
+
+    @Test
+    void rowsFollowTheWidestWindowWhateverItsPosition() throws Exception {
+        List<WindowStatsDto> stats = read(windows("1h", "30d"), WINDOWS);
+
+        assertThat(stats).extracting(WindowStatsDto::getUri).containsExactly("/windows/1", "/windows/2");
+        assertThat(stats.get(0).getHits()).containsExactly(Map.entry("1h", 1L), Map.entry("30d", 3L));
+    }
+
+    @Test
+    void uniqueCountsDistinctIps() throws Exception {
+        List<WindowStatsDto> stats = read(windows("1d", "all").param("unique", "true"), WINDOWS);
+
+        assertThat(stats.get(0).getHits()).containsExactly(Map.entry("1d", 1L), Map.entry("all", 3L));
+        assertThat(stats.get(1).getHits()).containsExactly(Map.entry("1d", 1L), Map.entry("all", 1L));
+    }
+
+    @Test
+    void acceptsUpToTheMaximumOfWindows() throws Exception {
+        String[] windows = IntStream.rangeClosed(1, 10).mapToObj(i -> i + "m").toArray(String[]::new);
+
+        assertThat(read(windows(windows), WINDOWS)).hasSize(1);
+    }
+
+    @Test
+    void rejectsBadRepeatedAndTooManyWindows() throws Exception {
+        expectBadRequest(windows("1w"));
+        expectBadRequest(windows("1h", "1d", "1h"));
+        expectBadRequest(windows(IntStream.rangeClosed(1, 11).mapToObj(i -> i + "m").toArray(String[]::new)));
+        expectBadRequest(get("/stats/windows").param("end", format(END)).param("uris", "/windows/1"));
+    }
+
+    private static MockHttpServletRequestBuilder windows(String... windows) {
+        return get("/stats/windows")
+                .param("end", format(END))
+                .param("windows", windows)
+                .param("uris", "/windows/1", "/windows/2");
+    }
+}
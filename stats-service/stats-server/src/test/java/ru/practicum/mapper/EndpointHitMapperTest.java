@@ -0,0 +1,84 @@
+package ru.practicum.mapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.exception.InvalidIpAddressException;
+import ru.practicum.exception.InvalidRequestParameterException;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.service.HitDictionary;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EndpointHitMapperTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private HitDictionary hitDictionary;
+    private EndpointHitMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        hitDictionary = mock(HitDictionary.class);
+        when(hitDictionary.appId("ewm-main-service")).thenReturn(1);
+        when(hitDictionary.uriId("/events/1")).thenReturn(2);
+        mapper = new EndpointHitMapper(hitDictionary);
+    }
+
+    @Test
+    void mapsNamesToIdsAndIpToBytes() {
+        EndpointHit hit = mapper.toEndpointHit(new EndpointHitDto("ewm-main-service", "/events/1", "192.168.0.1",
+                CREATED));
+
+        assertThat(hit.getAppId()).isEqualTo(1);
+        assertThat(hit.getUriId()).isEqualTo(2);
+        assertThat(hit.getIp()).containsExactly(192, 168, 0, 1);
+        assertThat(hit.getCreated()).isEqualTo(CREATED);
+        assertThat(hit.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void acceptsIpv6() {
+        EndpointHit hit = mapper.toEndpointHit(new EndpointHitDto("ewm-main-service", "/events/1", "::1", CREATED));
+
+        assertThat(hit.getIp()).hasSize(16);
+    }
+
+    @Test
+    void rejectsBlankAndOverlongNamesBeforeInterning() {
+        assertThatThrownBy(() -> mapper.toEndpointHit(new EndpointHitDto(" ", "/events/1", "10.0.0.1", CREATED)))
+                .isInstanceOf(InvalidRequestParameterException.class);
+        assertThatThrownBy(() -> mapper.toEndpointHit(new EndpointHitDto("ewm-main-service", null, "10.0.0.1",
+                CREATED)))
+                .isInstanceOf(InvalidRequestParameterException.class);
+        assertThatThrownBy(() -> mapper.toEndpointHit(new EndpointHitDto("ewm-main-service", "/" + "x".repeat(512),
+                "10.0.0.1", CREATED)))
+                .isInstanceOf(InvalidRequestParameterException.class);
+
+        verify(hitDictionary, never()).appId(anyString());
+        verify(hitDictionary, never()).uriId(anyString());
+    }
+
+    @Test
+    void rejectsBadIpsAndHitsBeforeInterning() {
+        assertThatThrownBy(() -> mapper.toEndpointHit(new EndpointHitDto("ewm-main-service", "/events/1",
+                "256.0.0.1", CREATED)))
+                .isInstanceOf(InvalidIpAddressException.class);
+        assertThatThrownBy(() -> mapper.toEndpointHit(new EndpointHitDto("ewm-main-service", "/events/1",
+                "localhost", CREATED)))
+                .isInstanceOf(InvalidIpAddressException.class);
+        EndpointHitDto noHits = new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", CREATED);
+        noHits.setHits(0);
+        assertThatThrownBy(() -> mapper.toEndpointHit(noHits)).isInstanceOf(InvalidRequestParameterException.class);
+
+        verify(hitDictionary, never()).appId(anyString());
+        verify(hitDictionary, never()).uriId(anyString());
+    }
+}
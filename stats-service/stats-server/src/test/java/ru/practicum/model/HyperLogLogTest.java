@@ -0,0 +1,93 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchCountsZero() {
+        assertThat(new HyperLogLog().cardinality()).isZero();
+    }
+
+    @Test
+    void smallCardinalityIsPracticallyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int repeat = 0; repeat < 3; repeat++) {
+            for (int i = 0; i < 100; i++) {
+                sketch.offer(ip(i));
+            }
+        }
+
+        assertThat(sketch.cardinality()).isCloseTo(100, within(1L));
+    }
+
+    @Test
+    void largeCardinalityIsWithinThreeStandardErrors() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.offer(ip(i));
+        }
+
+        assertThat(sketch.cardinality()).isCloseTo(100_000, within(5_000L));
+    }
+
+    @Test
+    void mergeEqualsSketchOfTheUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            first.offer(ip(i));
+            union.offer(ip(i));
+        }
+        for (int i = 20_000; i < 50_000; i++) {
+            second.offer(ip(i));
+            union.offer(ip(i));
+        }
+
+        first.merge(second);
+
+        assertThat(first.cardinality()).isEqualTo(union.cardinality());
+        assertThat(first.toBytes()).isEqualTo(union.toBytes());
+        assertThat(first.cardinality()).isCloseTo(50_000, within(2_500L));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.offer(ip(i));
+        }
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(restored.cardinality()).isEqualTo(sketch.cardinality());
+        assertThat(restored.toBytes()).isEqualTo(sketch.toBytes());
+    }
+
+    @Test
+    void sparseSketchIsSmall() {
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.offer(ip(1));
+
+        assertThat(sketch.toBytes().length).isLessThan(100);
+    }
+
+    @Test
+    void corruptedBytesAreRejected() {
+        byte[] corrupted = new HyperLogLog().toBytes();
+        corrupted[0] ^= 0xff;
+
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(corrupted)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{1, 2, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeCoverTest {
+    private static final List<RollupGranularity> LEVELS =
+            List.of(RollupGranularity.DAY, RollupGranularity.HOUR, RollupGranularity.MINUTE);
+
+    @Test
+    void alignedRangeIsOneSegment() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 4, 0, 0);
+
+        RangeCover cover = RangeCover.of(from, to, LEVELS);
+
+        assertThat(cover.getSegments()).hasSize(1);
+        assertSegment(cover.getSegments().get(0), RollupGranularity.DAY, from, to);
+        assertThat(cover.getRawRanges()).isEmpty();
+    }
+
+    @Test
+    void raggedEdgesGoToFinerLevelsAndRawHits() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 10, 30, 15);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 3, 5, 10, 0);
+
+        RangeCover cover = RangeCover.of(from, to, LEVELS);
+
+        List<RollupSegment> segments = cover.getSegments();
+        assertThat(segments).hasSize(5);
+        assertSegment(segments.get(0), RollupGranularity.DAY,
+                LocalDateTime.of(2024, 1, 2, 0, 0), LocalDateTime.of(2024, 1, 3, 0, 0));
+        assertSegment(segments.get(1), RollupGranularity.HOUR,
+                LocalDateTime.of(2024, 1, 1, 11, 0), LocalDateTime.of(2024, 1, 2, 0, 0));
+        assertSegment(segments.get(2), RollupGranularity.MINUTE,
+                LocalDateTime.of(2024, 1, 1, 10, 31), LocalDateTime.of(2024, 1, 1, 11, 0));
+        assertSegment(segments.get(3), RollupGranularity.HOUR,
+                LocalDateTime.of(2024, 1, 3, 0, 0), LocalDateTime.of(2024, 1, 3, 5, 0));
+        assertSegment(segments.get(4), RollupGranularity.MINUTE,
+                LocalDateTime.of(2024, 1, 3, 5, 0), LocalDateTime.of(2024, 1, 3, 5, 10));
+        assertThat(cover.getRawRanges()).hasSize(1);
+        assertThat(cover.getRawRanges().get(0).getFrom()).isEqualTo(from);
+        assertThat(cover.getRawRanges().get(0).getTo()).isEqualTo(LocalDateTime.of(2024, 1, 1, 10, 31));
+    }
+
+    @Test
+    void rangeWithinOneMinuteIsRaw() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 10, 30, 15);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 1, 10, 30, 45);
+
+        RangeCover cover = RangeCover.of(from, to, LEVELS);
+
+        assertThat(cover.getSegments()).isEmpty();
+        assertThat(cover.getRawRanges()).hasSize(1);
+        assertThat(cover.getRawRanges().get(0).getFrom()).isEqualTo(from);
+        assertThat(cover.getRawRanges().get(0).getTo()).isEqualTo(to);
+    }
+
+    @Test
+    void emptyRangeHasNoPieces() {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 10, 30);
+
+        RangeCover cover = RangeCover.of(time, time, LEVELS);
+
+        assertThat(cover.getSegments()).isEmpty();
+        assertThat(cover.getRawRanges()).isEmpty();
+    }
+
+    @Test
+    void piecesTileTheRangeWithoutGapsOrOverlaps() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 1_000; i++) {
+            LocalDateTime from = base.plusSeconds(random.nextInt(10 * 24 * 3600));
+            LocalDateTime to = from.plusSeconds(random.nextInt(5 * 24 * 3600));
+
+            RangeCover cover = RangeCover.of(from, to, LEVELS);
+
+            List<TimeRange> pieces = new ArrayList<>(cover.getRawRanges());
+            for (RollupSegment segment : cover.getSegments()) {
+                RollupGranularity granularity = segment.getGranularity();
+                assertThat(granularity.floor(segment.getFrom())).isEqualTo(segment.getFrom());
+                assertThat(granularity.floor(segment.getTo())).isEqualTo(segment.getTo());
+                pieces.add(new TimeRange(segment.getFrom(), segment.getTo()));
+            }
+            pieces.sort(Comparator.comparing(TimeRange::getFrom));
+            LocalDateTime covered = from;
+            for (TimeRange piece : pieces) {
+                assertThat(piece.getFrom()).isEqualTo(covered);
+                assertThat(piece.getFrom()).isBefore(piece.getTo());
+                covered = piece.getTo();
+            }
+            assertThat(covered).isEqualTo(to);
+        }
+    }
+
+    @Test
+    void granularityRoundsToBucketBounds() {
+        LocalDateTime time = LocalDateTime.of(2024, 2, 15, 10, 30, 15);
+
+        assertThat(RollupGranularity.MONTH.floor(time)).isEqualTo(LocalDateTime.of(2024, 2, 1, 0, 0));
+        assertThat(RollupGranularity.MONTH.ceil(time)).isEqualTo(LocalDateTime.of(2024, 3, 1, 0, 0));
+        assertThat(RollupGranularity.HOUR.floor(time)).isEqualTo(LocalDateTime.of(2024, 2, 15, 10, 0));
+        assertThat(RollupGranularity.HOUR.ceil(time)).isEqualTo(LocalDateTime.of(2024, 2, 15, 11, 0));
+        assertThat(RollupGranularity.MINUTE.ceil(LocalDateTime.of(2024, 2, 15, 10, 30)))
+                .isEqualTo(LocalDateTime.of(2024, 2, 15, 10, 30));
+        assertThat(RollupGranularity.DAY.next(LocalDateTime.of(2024, 2, 29, 0, 0)))
+                .isEqualTo(LocalDateTime.of(2024, 3, 1, 0, 0));
+    }
+
+    private static void assertSegment(RollupSegment segment, RollupGranularity granularity,
+                                      LocalDateTime from, LocalDateTime to) {
+        assertThat(segment.getGranularity()).isEqualTo(granularity);
+        assertThat(segment.getFrom()).isEqualTo(from);
+        assertThat(segment.getTo()).isEqualTo(to);
+    }
+}
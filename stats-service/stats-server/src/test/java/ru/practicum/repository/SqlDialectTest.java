@@ -0,0 +1,87 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SqlDialectTest {
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTables() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:sql-dialect;DB_CLOSE_DELAY=-1", "test", "test");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table COUNTED (k1 VARCHAR(6) NOT NULL, k2 INTEGER NOT NULL, " +
+                "hits BIGINT NOT NULL, visits BIGINT NOT NULL, constraint COUNTED_PK primary key (k1, k2))");
+        jdbcTemplate.execute("create table REGISTERED (k INTEGER NOT NULL, payload BYTEA NOT NULL, " +
+                "constraint REGISTERED_PK primary key (k))");
+    }
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void h2MergeInsertsThenIncrements() throws Exception {
+        SqlDialect dialect = new SqlDialect(dataSource);
+        String sql = dialect.insertOrIncrement("counted", List.of("k1", "k2"), List.of("hits", "visits"));
+
+        assertThat(dialect.isPostgres()).isFalse();
+        assertThat(jdbcTemplate.update(sql, "a", 1, 3L, 1L)).isEqualTo(1);
+        jdbcTemplate.update(sql, "a", 1, 4L, 2L);
+        jdbcTemplate.update(sql, "a", 2, 5L, 1L);
+
+        assertThat(jdbcTemplate.queryForList("select k2, hits, visits from counted order by k2"))
+                .containsExactly(Map.of("K2", 1, "HITS", 7L, "VISITS", 3L), Map.of("K2", 2, "HITS", 5L, "VISITS", 1L));
+    }
+
+    @Test
+    void h2MergeSkipsExistingKeysAndKeepsBinaryValues() throws Exception {
+        SqlDialect dialect = new SqlDialect(dataSource);
+        String sql = dialect.insertIfAbsent("registered", List.of("k"), List.of("payload"));
+        byte[] first = {0, 1, (byte) 0xff};
+
+        assertThat(jdbcTemplate.update(sql, 1, first)).isEqualTo(1);
+        assertThat(jdbcTemplate.update(sql, 1, new byte[]{2})).isZero();
+
+        assertThat(jdbcTemplate.queryForObject("select payload from registered where k = 1", byte[].class))
+                .isEqualTo(first);
+    }
+
+    @Test
+    void postgresUsesOnConflict() throws Exception {
+        SqlDialect dialect = new SqlDialect(postgresDataSource());
+
+        assertThat(dialect.isPostgres()).isTrue();
+        assertThat(dialect.insertOrIncrement("counted", List.of("k1", "k2"), List.of("hits", "visits")))
+                .isEqualTo("insert into counted (k1, k2, hits, visits) values (?, ?, ?, ?) " +
+                        "on conflict (k1, k2) do update set hits = counted.hits + excluded.hits, " +
+                        "visits = counted.visits + excluded.visits");
+        assertThat(dialect.insertIfAbsent("registered", List.of("k"), List.of("payload")))
+                .isEqualTo("insert into registered (k, payload) values (?, ?) on conflict (k) do nothing");
+    }
+
+    private static DataSource postgresDataSource() throws Exception {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        Connection connection = mock(Connection.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
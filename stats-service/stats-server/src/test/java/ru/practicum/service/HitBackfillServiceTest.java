@@ -0,0 +1,127 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.AggregateRepository;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.repository.HitRollupRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitBackfillServiceTest {
+    private AggregateRepository aggregateRepository;
+    private HitBatchRepository hitBatchRepository;
+    private HitRollupService hitRollupService;
+    private HitRollupRepository hitRollupRepository;
+    private UriCounterService uriCounterService;
+    private HitSketchService hitSketchService;
+
+    @BeforeEach
+    void setUp() {
+        aggregateRepository = mock(AggregateRepository.class);
+        hitBatchRepository = mock(HitBatchRepository.class);
+        hitRollupService = mock(HitRollupService.class);
+        hitRollupRepository = mock(HitRollupRepository.class);
+        uriCounterService = mock(UriCounterService.class);
+        hitSketchService = mock(HitSketchService.class);
+        when(hitRollupService.isEnabled()).thenReturn(true);
+        when(hitBatchRepository.findAfter(0, 1000)).thenReturn(List.of());
+    }
+
+    @Test
+    void rebuildsAnAggregateNotListedAsComplete() {
+        List<EndpointHit> first = hits(1, 1000);
+        List<EndpointHit> second = hits(1001, 1003);
+        when(hitBatchRepository.findAfter(0, 1000)).thenReturn(first);
+        when(hitBatchRepository.findAfter(1000, 1000)).thenReturn(second);
+
+        service().backfill();
+
+        InOrder order = inOrder(aggregateRepository, hitRollupRepository, hitRollupService);
+        order.verify(aggregateRepository).lockHits();
+        order.verify(hitRollupRepository).deleteAll();
+        order.verify(hitRollupService).record(first);
+        order.verify(hitRollupService).record(second);
+        order.verify(aggregateRepository).markComplete(HitBackfillService.ROLLUP);
+    }
+
+    @Test
+    void leavesACompleteAggregateAlone() {
+        when(aggregateRepository.isComplete(HitBackfillService.ROLLUP)).thenReturn(true);
+
+        service().backfill();
+
+        verify(hitRollupRepository, never()).deleteAll();
+        verify(hitRollupService, never()).record(anyList());
+        verify(aggregateRepository, never()).lockHits();
+    }
+
+    @Test
+    void countersAreRecountedOnTheirOwn() {
+        when(aggregateRepository.isComplete(HitBackfillService.ROLLUP)).thenReturn(true);
+        when(uriCounterService.isEnabled()).thenReturn(true);
+
+        service().backfill();
+
+        InOrder order = inOrder(aggregateRepository, uriCounterService);
+        order.verify(aggregateRepository).lockHits();
+        order.verify(uriCounterService).rebuild();
+        order.verify(aggregateRepository).markComplete(HitBackfillService.COUNTER);
+        verify(hitRollupRepository, never()).deleteAll();
+    }
+
+    @Test
+    void storedHitsAreMergedIntoTheSketchesWithoutDroppingThem() {
+        when(aggregateRepository.isComplete(HitBackfillService.ROLLUP)).thenReturn(true);
+        when(hitSketchService.isEnabled()).thenReturn(true);
+        List<EndpointHit> hits = hits(1, 2);
+        when(hitBatchRepository.findAfter(0, 1000)).thenReturn(hits);
+
+        service().backfill();
+
+        verify(hitSketchService).record(hits);
+        verify(aggregateRepository).markComplete(HitBackfillService.SKETCH);
+        verify(hitRollupService, never()).record(anyList());
+    }
+
+    @Test
+    void aDisabledAggregateIsNoLongerComplete() {
+        when(hitRollupService.isEnabled()).thenReturn(false);
+
+        service().backfill();
+
+        verify(aggregateRepository).markIncomplete(HitBackfillService.ROLLUP);
+        verify(aggregateRepository).markIncomplete(HitBackfillService.COUNTER);
+        verify(aggregateRepository).markIncomplete(HitBackfillService.SKETCH);
+        verify(aggregateRepository, never()).markComplete(anyString());
+        verify(hitRollupRepository, never()).deleteAll();
+    }
+
+    private HitBackfillService service() {
+        return new HitBackfillService(aggregateRepository, hitBatchRepository, hitRollupService, hitRollupRepository,
+                uriCounterService, hitSketchService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    private static List<EndpointHit> hits(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> new EndpointHit(id, 1, 1, new byte[]{10, 0, 0, 1}, LocalDateTime.now(), 1))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.repository.DictionaryRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitDictionaryTest {
+    private final Map<String, Integer> stored = new HashMap<>();
+    private DictionaryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(DictionaryRepository.class);
+        when(repository.intern(anyString(), anyString()))
+                .thenAnswer(invocation -> stored.computeIfAbsent(invocation.getArgument(0) + ":" +
+                        invocation.getArgument(1), key -> stored.size() + 1));
+        when(repository.findName(anyString(), anyInt())).thenAnswer(invocation -> stored.entrySet().stream()
+                .filter(e -> e.getKey().startsWith(invocation.getArgument(0) + ":") &&
+                        e.getValue().equals(invocation.getArgument(1)))
+                .map(e -> e.getKey().substring(e.getKey().indexOf(':') + 1))
+                .findFirst()
+                .orElseThrow());
+        doAnswer(invocation -> {
+            String table = invocation.getArgument(0);
+            Collection<String> names = invocation.getArgument(1);
+            BiConsumer<Integer, String> consumer = invocation.getArgument(2);
+            for (String name : names) {
+                Integer id = stored.get(table + ":" + name);
+                if (id != null) {
+                    consumer.accept(id, name);
+                }
+            }
+            return null;
+        }).when(repository).findIds(anyString(), any(), any());
+        doAnswer(invocation -> {
+            String table = invocation.getArgument(0);
+            Collection<Integer> ids = invocation.getArgument(1);
+            BiConsumer<Integer, String> consumer = invocation.getArgument(2);
+            stored.forEach((key, id) -> {
+                if (key.startsWith(table + ":") && ids.contains(id)) {
+                    consumer.accept(id, key.substring(key.indexOf(':') + 1));
+                }
+            });
+            return null;
+        }).when(repository).findNames(anyString(), any(), any());
+    }
+
+    @Test
+    void internedNamesAreCachedBothWays() {
+        HitDictionary dictionary = new HitDictionary(repository, 10, 10);
+
+        int id = dictionary.uriId("/events/1");
+
+        assertThat(dictionary.uriId("/events/1")).isEqualTo(id);
+        assertThat(dictionary.uriName(id)).isEqualTo("/events/1");
+        verify(repository, times(1)).intern(DictionaryRepository.URI, "/events/1");
+        verify(repository, never()).findName(anyString(), anyInt());
+    }
+
+    @Test
+    void appsAndUrisAreSeparateDictionaries() {
+        HitDictionary dictionary = new HitDictionary(repository, 10, 10);
+
+        dictionary.appId("same");
+        dictionary.uriId("same");
+
+        verify(repository).intern(DictionaryRepository.APP, "same");
+        verify(repository).intern(DictionaryRepository.URI, "same");
+    }
+
+    @Test
+    void leastRecentlyUsedNameIsEvicted() {
+        HitDictionary dictionary = new HitDictionary(repository, 10, 2);
+        dictionary.uriId("/a");
+        dictionary.uriId("/b");
+        dictionary.uriId("/a");
+
+        dictionary.uriId("/c");
+        dictionary.uriId("/a");
+        dictionary.uriId("/c");
+
+        verify(repository, times(1)).intern(DictionaryRepository.URI, "/a");
+        verify(repository, times(1)).intern(DictionaryRepository.URI, "/c");
+        int b = dictionary.uriId("/b");
+        verify(repository, times(2)).intern(DictionaryRepository.URI, "/b");
+        assertThat(b).isEqualTo(stored.get(DictionaryRepository.URI + ":/b"));
+    }
+
+    @Test
+    void evictedIdIsResolvedFromTheRepository() {
+        HitDictionary dictionary = new HitDictionary(repository, 10, 1);
+        int a = dictionary.uriId("/a");
+        dictionary.uriId("/b");
+
+        assertThat(dictionary.uriName(a)).isEqualTo("/a");
+        verify(repository).findName(DictionaryRepository.URI, a);
+    }
+
+    @Test
+    void findLooksUpOnlyUncachedNamesAndSkipsUnknownOnes() {
+        HitDictionary dictionary = new HitDictionary(repository, 10, 10);
+        int cached = dictionary.uriId("/cached");
+        stored.put(DictionaryRepository.URI + ":/stored", 100);
+
+        List<Integer> ids = dictionary.findUriIds(List.of("/cached", "/stored", "/unknown"));
+
+        assertThat(ids).containsExactlyInAnyOrder(cached, 100);
+        verify(repository).findIds(eq(DictionaryRepository.URI), eq(List.of("/stored", "/unknown")), any());
+        assertThat(dictionary.findUriIds(List.of("/stored"))).containsExactly(100);
+        verify(repository, times(1)).findIds(anyString(), any(), any());
+    }
+
+    @Test
+    void namesOfUncachedIdsAreLookedUpTogether() {
+        HitDictionary dictionary = new HitDictionary(repository, 10, 10);
+        int cached = dictionary.uriId("/cached");
+        stored.put(DictionaryRepository.URI + ":/first", 100);
+        stored.put(DictionaryRepository.URI + ":/second", 101);
+
+        Map<Integer, String> names = dictionary.uriNames(List.of(cached, 100, 101));
+
+        assertThat(names).containsOnly(Map.entry(cached, "/cached"), Map.entry(100, "/first"),
+                Map.entry(101, "/second"));
+        verify(repository).findNames(eq(DictionaryRepository.URI), eq(List.of(100, 101)), any());
+        assertThat(dictionary.uriName(101)).isEqualTo("/second");
+        verify(repository, times(1)).findNames(anyString(), any(), any());
+        verify(repository, never()).findName(anyString(), anyInt());
+    }
+}
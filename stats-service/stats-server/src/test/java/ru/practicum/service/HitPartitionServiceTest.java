@@ -0,0 +1,126 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.repository.HitPartitionRepository;
+import ru.practicum.repository.SqlDialect;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitPartitionServiceTest {
+    private static final DateTimeFormatter NAME_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private HitPartitionRepository repository;
+    private SqlDialect sqlDialect;
+    private UnpartitionedHitMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(HitPartitionRepository.class);
+        sqlDialect = mock(SqlDialect.class);
+        migration = mock(UnpartitionedHitMigration.class);
+        when(sqlDialect.isPostgres()).thenReturn(true);
+        when(repository.findPartitionNames()).thenReturn(List.of());
+    }
+
+    @Test
+    void onlyMonthAndDayPartitionsAreAllowed() {
+        assertThatThrownBy(() -> new HitPartitionService(RollupGranularity.HOUR, 3, 0, repository, sqlDialect, migration))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void createsCurrentAndPremadeMonths() {
+        LocalDateTime month = RollupGranularity.MONTH.floor(LocalDateTime.now());
+
+        new HitPartitionService(RollupGranularity.MONTH, 2, 0, repository, sqlDialect, migration).maintain();
+
+        for (int i = 0; i <= 2; i++) {
+            verifyCreated(month.plusMonths(i), month.plusMonths(i + 1));
+        }
+        verify(repository, times(3)).createPartition(anyString(), any(), any());
+    }
+
+    @Test
+    void skipsRangesAnExistingPartitionOverlaps() {
+        LocalDateTime day = RollupGranularity.DAY.floor(LocalDateTime.now());
+        LocalDateTime month = RollupGranularity.MONTH.floor(day);
+        when(repository.findPartitionNames()).thenReturn(List.of(name(day, day.plusDays(1)), "endpoint_hit_default"));
+
+        new HitPartitionService(RollupGranularity.MONTH, 1, 0, repository, sqlDialect, migration).maintain();
+
+        verifyCreated(month.plusMonths(1), month.plusMonths(2));
+        verify(repository, never()).createPartition(name(month, month.plusMonths(1)), month, month.plusMonths(1));
+    }
+
+    @Test
+    void migratesUnpartitionedRowsIntoPartitionsCreatedFirst() {
+        when(repository.tableExists(HitPartitionRepository.UNPARTITIONED)).thenReturn(true);
+        when(repository.findUnpartitionedSpan()).thenReturn(Map.of(
+                "first", Timestamp.valueOf(LocalDateTime.of(2024, 1, 15, 10, 0)),
+                "last", Timestamp.valueOf(LocalDateTime.of(2024, 3, 2, 8, 0))));
+
+        new HitPartitionService(RollupGranularity.MONTH, 0, 0, repository, sqlDialect, migration).maintain();
+
+        InOrder order = inOrder(repository, migration);
+        for (int month = 1; month <= 3; month++) {
+            LocalDateTime from = LocalDateTime.of(2024, month, 1, 0, 0);
+            order.verify(repository).createPartition(name(from, from.plusMonths(1)), from, from.plusMonths(1));
+        }
+        order.verify(migration).migrate();
+    }
+
+    @Test
+    void retentionDropsExpiredPartitionsAndDefaultRows() {
+        LocalDateTime cutoff = LocalDate.now().minusDays(30).atStartOfDay();
+        String expired = name(cutoff.minusDays(1), cutoff);
+        String current = name(cutoff.minusDays(1), cutoff.plusDays(1));
+        when(repository.findPartitionNames()).thenReturn(List.of(expired, current, "endpoint_hit_default"));
+
+        new HitPartitionService(RollupGranularity.DAY, 0, 30, repository, sqlDialect, migration).maintain();
+
+        verify(repository).dropPartition(expired);
+        verify(repository, never()).dropPartition(current);
+        verify(repository, never()).dropPartition("endpoint_hit_default");
+        verify(repository).deleteDefaultPartitionHitsBefore(cutoff);
+        verify(repository, never()).deleteHitsBefore(any());
+    }
+
+    @Test
+    void h2HasNoPartitionsAndDeletesExpiredRows() {
+        when(sqlDialect.isPostgres()).thenReturn(false);
+        LocalDateTime cutoff = LocalDate.now().minusDays(7).atStartOfDay();
+
+        new HitPartitionService(RollupGranularity.MONTH, 3, 7, repository, sqlDialect, migration).maintain();
+
+        verify(repository).deleteHitsBefore(cutoff);
+        verify(repository, never()).findPartitionNames();
+        verify(repository, never()).createPartition(anyString(), any(), any());
+        verify(repository, never()).dropPartition(anyString());
+    }
+
+    private void verifyCreated(LocalDateTime from, LocalDateTime to) {
+        verify(repository).createPartition(name(from, to), from, to);
+    }
+
+    private static String name(LocalDateTime from, LocalDateTime to) {
+        return "endpoint_hit_" + NAME_DATE.format(from) + "_" + NAME_DATE.format(to);
+    }
+}
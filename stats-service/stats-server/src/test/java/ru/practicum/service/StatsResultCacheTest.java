@@ -0,0 +1,117 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatsResultCacheTest {
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private StatsRepository statsRepository;
+
+    @BeforeEach
+    void setUp() {
+        statsRepository = mock(StatsRepository.class);
+        when(statsRepository.findEarliestCreated()).thenReturn(EARLIEST);
+        when(statsRepository.findLatestCreated()).thenReturn(LATEST);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        StatsResultCache cache = cache(false, 0);
+
+        get(cache, List.of(1));
+        get(cache, List.of(1));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void answerIsServedUntilOneOfItsUrisIsHit() {
+        StatsResultCache cache = cache(true, 0);
+        get(cache, List.of(1));
+        get(cache, List.of(2));
+
+        assertThat(get(cache, List.of(1))).isEqualTo(1);
+        cache.record(List.of(hit(2)));
+
+        assertThat(get(cache, List.of(1))).isEqualTo(1);
+        assertThat(get(cache, List.of(2))).isEqualTo(3);
+        assertThat(get(cache, List.of(2))).isEqualTo(3);
+    }
+
+    @Test
+    void answerForAllUrisIsDroppedByAnyHit() {
+        StatsResultCache cache = cache(true, 0);
+        get(cache, List.of());
+
+        cache.record(List.of(hit(5)));
+
+        assertThat(get(cache, List.of())).isEqualTo(2);
+    }
+
+    @Test
+    void hitCommittedWhileLoadingLeavesTheAnswerStale() {
+        StatsResultCache cache = cache(true, 0);
+
+        cache.get(EARLIEST, LATEST, List.of(1), false, false, () -> {
+            cache.record(List.of(hit(1)));
+            return load().get();
+        });
+
+        assertThat(get(cache, List.of(1))).isEqualTo(2);
+    }
+
+    @Test
+    void freshAnswerIsServedDespiteNewHits() {
+        StatsResultCache cache = cache(true, 60_000);
+        get(cache, List.of(1));
+
+        cache.record(List.of(hit(1)));
+
+        assertThat(get(cache, List.of(1))).isEqualTo(1);
+    }
+
+    @Test
+    void rangesBeyondTheKnownHitsShareOneEntry() {
+        StatsResultCache cache = cache(true, 0);
+
+        cache.get(EARLIEST.minusYears(20), LATEST.plusYears(100), List.of(2, 1, 1), false, false, load());
+        cache.get(EARLIEST.minusYears(5), LATEST.plusDays(1), List.of(1, 2), false, false, load());
+        cache.get(EARLIEST.plusDays(1), LATEST, List.of(1, 2), false, false, load());
+        cache.get(EARLIEST.minusYears(5), LATEST.plusDays(1), List.of(1, 2), true, false, load());
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    private StatsResultCache cache(boolean enabled, long maxStalenessMs) {
+        return new StatsResultCache(enabled, 100, maxStalenessMs, statsRepository, new SimpleMeterRegistry());
+    }
+
+    // Returns the number of the load that produced the answer.
+    private long get(StatsResultCache cache, List<Integer> uriIds) {
+        return cache.get(EARLIEST, LATEST, uriIds, false, false, load()).get(0).getHits();
+    }
+
+    private Supplier<List<ViewStatsDto>> load() {
+        return () -> List.of(new ViewStatsDto("app", "/events", (long) loads.incrementAndGet()));
+    }
+
+    private static EndpointHit hit(int uriId) {
+        return EndpointHit.builder().appId(1).uriId(uriId).created(LATEST.minusDays(1)).hits(1).build();
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.model.CounterDelta;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.UriCounterChange;
+import ru.practicum.repository.UriCounterRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UriCounterServiceTest {
+    private static final long STORED_VERSION = 7;
+
+    private UriCounterRepository repository;
+    private UriCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UriCounterRepository.class);
+        when(repository.findMaxVersion()).thenReturn(STORED_VERSION);
+        when(repository.insertVisitors(anyList())).thenAnswer(invocation ->
+                new int[invocation.<List<?>>getArgument(0).size()]);
+        service = new UriCounterService(true, repository);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void versionsContinueFromTheStoredOnes() {
+        assertThat(service.committedVersion()).isEqualTo(STORED_VERSION);
+
+        service.record(List.of(hit(1)));
+
+        verify(repository).increment(anyList(), eq(STORED_VERSION + 1));
+        assertThat(service.committedVersion()).isEqualTo(STORED_VERSION + 1);
+    }
+
+    @Test
+    void rebuildStampsEveryCounterWithTheNextVersion() {
+        service.record(List.of(hit(1)));
+
+        service.rebuild();
+
+        verify(repository).rebuild(STORED_VERSION + 2);
+        assertThat(service.committedVersion()).isEqualTo(STORED_VERSION + 2);
+    }
+
+    @Test
+    void openWriteHoldsTheWatermarkBackUntilItCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.record(List.of(hit(1)));
+        service.record(List.of(hit(2)));
+        List<TransactionSynchronization> writes =
+                new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+
+        assertThat(service.committedVersion()).isEqualTo(STORED_VERSION);
+        writes.get(1).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(service.committedVersion()).isEqualTo(STORED_VERSION);
+        writes.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(service.committedVersion()).isEqualTo(STORED_VERSION + 2);
+    }
+
+    @Test
+    void sinceAtOrBeyondTheWatermarkGivesAnEmptyPage() {
+        for (long since : new long[]{STORED_VERSION, STORED_VERSION + 100}) {
+            CounterDelta delta = service.findChanged(since, null, null, 10);
+
+            assertThat(delta.getWatermark()).isEqualTo(STORED_VERSION);
+            assertThat(delta.isMore()).isFalse();
+            assertThat(delta.getChanges()).isEmpty();
+        }
+        verify(repository, never()).findChanged(anyLong(), anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    void shortPageReachesTheWatermark() {
+        when(repository.findChanged(0, STORED_VERSION, "app", "/events/", 10))
+                .thenReturn(changes(3, 5));
+
+        CounterDelta delta = service.findChanged(0, "app", "/events/", 10);
+
+        assertThat(delta.getWatermark()).isEqualTo(STORED_VERSION);
+        assertThat(delta.isMore()).isFalse();
+        assertThat(delta.getChanges()).extracting(UriCounterChange::getVersion).containsExactly(3L, 5L);
+    }
+
+    @Test
+    void fullPageIsCutBeforeItsLastVersion() {
+        when(repository.findChanged(0, STORED_VERSION, null, null, 3)).thenReturn(changes(2, 4, 4));
+
+        CounterDelta delta = service.findChanged(0, null, null, 3);
+
+        assertThat(delta.getWatermark()).isEqualTo(2);
+        assertThat(delta.isMore()).isTrue();
+        assertThat(delta.getChanges()).extracting(UriCounterChange::getVersion).containsExactly(2L);
+    }
+
+    @Test
+    void versionLongerThanTheLimitIsReturnedWhole() {
+        when(repository.findChanged(0, STORED_VERSION, null, null, 2)).thenReturn(changes(5, 5));
+        when(repository.findChanged(4, 5, null, null, Integer.MAX_VALUE)).thenReturn(changes(5, 5, 5));
+
+        CounterDelta delta = service.findChanged(0, null, null, 2);
+
+        assertThat(delta.getWatermark()).isEqualTo(5);
+        assertThat(delta.isMore()).isTrue();
+        assertThat(delta.getChanges()).hasSize(3);
+    }
+
+    @Test
+    void disabledRecordsNothing() {
+        UriCounterService disabled = new UriCounterService(false, repository);
+
+        disabled.record(List.of(hit(1)));
+
+        assertThat(disabled.committedVersion()).isZero();
+        verify(repository, never()).increment(anyList(), anyLong());
+    }
+
+    private static EndpointHit hit(int uriId) {
+        return new EndpointHit(null, 1, uriId, new byte[]{10, 0, 0, 1}, LocalDateTime.of(2024, 1, 1, 0, 0), 1);
+    }
+
+    private static List<UriCounterChange> changes(long... versions) {
+        List<UriCounterChange> changes = new ArrayList<>();
+        for (int i = 0; i < versions.length; i++) {
+            changes.add(new UriCounterChange(1, i + 1, 1, 1, versions[i]));
+        }
+        return changes;
+    }
+}